@@ -0,0 +1,45 @@
+package com.example.demo;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * ベンチマーク用にアプリを組み込み H2 で起動し、指定件数のダミーデータを入れる。
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(int scale, String... extraArgs) {
+        ConfigurableApplicationContext context = run("bench" + scale, extraArgs);
+        new SyntheticDataGenerator(context.getBean(JdbcTemplate.class), 42L).generate(scale);
+
+        // JDBC で直接入れたので、メモリ上の索引と集計を作り直す
+        context.getBean(ReviewSearchIndex.class).rebuild();
+        context.getBean(RatingAggregateStore.class).rebuild();
+        return context;
+    }
+
+    // データを入れずに起動だけする（database はインメモリ H2 の名前）
+    static ConfigurableApplicationContext run(String database, String... extraArgs) {
+        String[] args = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:" + database
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+        };
+        String[] allArgs = new String[args.length + extraArgs.length];
+        System.arraycopy(args, 0, allArgs, 0, args.length);
+        System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+        // JMH のスレッドには main メソッドが無いので、起動クラスを明示する（AOT で起動するときに要る）
+        SpringApplication application = new SpringApplication(DemoApplication.class);
+        application.setMainApplicationClass(DemoApplication.class);
+        return application.run(allArgs);
+    }
+}
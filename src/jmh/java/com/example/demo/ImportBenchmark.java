@@ -0,0 +1,91 @@
+package com.example.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * rows 件の取り込みにかかる時間を、一括取り込み（JDBC バッチ）と 1 件ずつの保存（ReviewService.addReview）で比べる。
+ * 1 回の呼び出しで rows 件入れるので SingleShotTime で測り、毎回テーブルを空にしてから始める。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ImportBenchmark {
+
+    @Param({"10000"})
+    int rows;
+
+    @Param({"1000"})
+    int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private ReviewService service;
+    private ReviewImportService importService;
+    private JdbcTemplate jdbc;
+    private byte[] ndjson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(0);
+        service = context.getBean(ReviewService.class);
+        importService = context.getBean(ReviewImportService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append("{\"courseName\":\"授業").append(i % 500)
+                    .append("\",\"teacherName\":\"教員").append(i % 200)
+                    .append("\",\"university\":\"テスト大学\",\"testMethod\":\"筆記\",\"attendanceMethod\":\"毎回\"")
+                    .append(",\"rating\":").append(1 + i % 5)
+                    .append(",\"comment\":\"取り込みテスト ").append(i).append("\"}\n");
+        }
+        ndjson = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        jdbc.update("delete from review");
+        service.rebuildSearchData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReviewImportService.ImportReport batchImport() throws IOException {
+        return importService.importNdjson(new ByteArrayInputStream(ndjson), batchSize);
+    }
+
+    // 今までの経路（API の create と同じく 1 件ごとに save）
+    @Benchmark
+    public int saveOnePerRow() {
+        for (int i = 0; i < rows; i++) {
+            Review review = new Review("授業" + (i % 500), "教員" + (i % 200), "テスト大学", "筆記", "毎回",
+                    1 + i % 5, "取り込みテスト " + i);
+            service.addReview(review);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 書き込みの流量制限 1 回の判定にかかる時間を測る（Spring は起動しない）。
+ * stripes=1 は全キーで 1 つのロックを取り合う場合で、区画を分けたときとの差がロックストライピングの効果。
+ * users 人のユーザーが 1,000 件のレビューにランダムに書き込む想定で、通る・断るの両方を含む。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class RateLimiterBenchmark {
+
+    @Param({"1", "64"})
+    int stripes;
+
+    @Param({"10000"})
+    int users;
+
+    private WriteRateLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setStripes(stripes);
+        limiter = new WriteRateLimiter(properties);
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return limiter.tryAcquire(random.nextInt(users), random.nextInt(1000));
+    }
+}
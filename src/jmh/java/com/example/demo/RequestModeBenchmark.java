@@ -0,0 +1,157 @@
+package com.example.demo;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * 接続プールより多い同時リクエスト（clients 本の接続から合計 requests 件）を検索画面に送り、
+ * 全部が返るまでの時間を実行モードごとに比べる。
+ * <ul>
+ *   <li>classic: 従来どおり（Tomcat のスレッドで処理し、あふれた分は接続プールの中で待つ）</li>
+ *   <li>admission: アドミッション制御あり（接続プールの大きさまで通し、残りは入口で待つ）</li>
+ * </ul>
+ * 接続プールは本番（Cloud Run）と同じ 5 本にする。200・503・それ以外（エラー・タイムアウトを含む）の件数は
+ * 補助カウンタ（Responses）として JMH の結果に並べて出す。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class RequestModeBenchmark {
+
+    private static final String EMAIL = "bench@example.com";
+    private static final String PASSWORD = "bench";
+
+    @Param({"10000"})
+    int scale;
+
+    @Param({"classic", "admission"})
+    String mode;
+
+    @Param({"400"})
+    int clients;
+
+    @Param({"1000"})
+    int requests;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient http;
+    private ExecutorService senders;
+    private URI searchUri;
+
+    // 応答の内訳。JMH が反復ごとに 0 に戻して読み取り、計測した反復の合計を結果に出す
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long ok;
+        public long rejected;
+        public long failed;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(scale,
+                "--spring.datasource.hikari.maximum-pool-size=5",
+                "--app.admission.enabled=" + !"classic".equals(mode),
+                "--app.admission.max-wait=30s",
+                "--app.query-budget.fail-on-exceed=false");
+
+        context.getBean(JdbcTemplate.class).update(
+                "insert into users (email, password, role, nickname) values (?, ?, 'ROLE_STUDENT', 'bench')",
+                EMAIL, context.getBean(PasswordEncoder.class).encode(PASSWORD));
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        senders = Executors.newFixedThreadPool(clients);
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(senders)
+                .build();
+
+        String form = "username=" + URLEncoder.encode(EMAIL, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8);
+        HttpResponse<Void> login = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (login.statusCode() != 302 || login.headers().firstValue("Location").orElse("").contains("error")) {
+            throw new IllegalStateException("Login failed: " + login.statusCode());
+        }
+
+        searchUri = URI.create(base + "/reviews/search?target=course&keyword="
+                + URLEncoder.encode("統計", StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        senders.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public long burst(Responses counts) throws Exception {
+        ExecutorService clientPool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Integer>> responses = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                responses.add(clientPool.submit(() -> http.send(
+                        HttpRequest.newBuilder(searchUri).timeout(Duration.ofSeconds(60)).GET().build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode()));
+            }
+            for (Future<Integer> response : responses) {
+                int status;
+                try {
+                    status = response.get();
+                } catch (ExecutionException e) {
+                    counts.failed++;
+                    continue;
+                }
+                if (status == 200) {
+                    counts.ok++;
+                } else if (status == 503) {
+                    counts.rejected++;
+                } else {
+                    counts.failed++;
+                }
+            }
+            return counts.ok;
+        } finally {
+            clientPool.shutdownNow();
+        }
+    }
+}
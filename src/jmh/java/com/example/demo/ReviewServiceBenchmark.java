@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 検索画面まわりの ReviewService の処理を測る（評価サマリー・大学名サジェスト・コメントのプレビュー）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ReviewServiceBenchmark {
+
+    private static final String COURSE_KEYWORD = "統計";
+
+    @Param({"10000"})
+    int scale;
+
+    private ConfigurableApplicationContext context;
+    private ReviewService service;
+    private TransactionTemplate transaction;
+    private List<Review> courseReviews;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(scale);
+        service = context.getBean(ReviewService.class);
+        transaction = context.getBean(TransactionTemplate.class);
+        courseReviews = context.getBean(ReviewRepository.class).findByCourseNameLowerContaining(COURSE_KEYWORD);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // 読み込み済みのレビュー一覧から集計する（授業ページの平均・内訳）
+    @Benchmark
+    public ReviewService.RatingSummary buildRatingSummary() {
+        return service.buildRatingSummary(courseReviews);
+    }
+
+    // 検索画面の評価サマリー（キーワードに一致する授業の集計）
+    @Benchmark
+    public ReviewService.RatingSummary ratingSummaryForKeyword() {
+        return service.getRatingSummary(COURSE_KEYWORD, "course");
+    }
+
+    @Benchmark
+    public List<String> suggestUniversitiesPrefix() {
+        return service.suggestUniversities("東京");
+    }
+
+    @Benchmark
+    public List<String> suggestUniversitiesSubstring() {
+        return service.suggestUniversities("工業");
+    }
+
+    // 検索画面と同じく 1 ページ分のレビューとそのコメントを 1 つの永続化コンテキストで読む
+    @Benchmark
+    public Map<Integer, List<Comment>> searchPageWithCommentPreviews() {
+        return transaction.execute(status -> {
+            List<Review> page = service.search(null, null, "recent", null, ReviewService.DEFAULT_PAGE_SIZE).getItems();
+            Map<Integer, List<Comment>> previews = service.getCommentPreviews(page, 5);
+            // 画面と同じく投稿者まで辿る
+            previews.values().forEach(comments -> comments.forEach(comment -> comment.getUser().getNickname()));
+            return previews;
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * ReviewService.search の 1 ページ目・2 ページ目を、検索対象と並び順の組み合わせごとに測る。
+ * target=none はキーワード無し（一覧）。規模は -p scale=100000 のように指定する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    @Param({"10000"})
+    int scale;
+
+    @Param({"none", "all", "course", "teacher", "university"})
+    String target;
+
+    @Param({"recent", "rating", "likes"})
+    String sort;
+
+    private ConfigurableApplicationContext context;
+    private ReviewService service;
+    private String keyword;
+    private String secondPageCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(scale);
+        service = context.getBean(ReviewService.class);
+        keyword = switch (target) {
+            case "course" -> "統計";
+            case "teacher" -> "田中";
+            case "university" -> "東京";
+            case "all" -> "情報";
+            default -> null;
+        };
+        secondPageCursor = service.search(keyword, target, sort, null, ReviewService.DEFAULT_PAGE_SIZE).getNextCursor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReviewService.ReviewPage<Review> firstPage() {
+        return service.search(keyword, target, sort, null, ReviewService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ReviewService.ReviewPage<Review> secondPage() {
+        return service.search(keyword, target, sort, secondPageCursor, ReviewService.DEFAULT_PAGE_SIZE);
+    }
+}
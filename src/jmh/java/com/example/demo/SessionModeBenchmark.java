@@ -0,0 +1,186 @@
+package com.example.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.catalina.Context;
+import org.apache.catalina.Session;
+import org.apache.catalina.session.StandardSession;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * セッションの持ち方ごとに、ログイン済みリクエスト 1 件の時間と、ログイン中のユーザーがサーバーに残すメモリを比べる。
+ * <ul>
+ *   <li>session: 従来どおり HttpSession（インスタンスのメモリ）に SecurityContext を持つ</li>
+ *   <li>stateless: 署名付き Cookie（app.session.stateless=true）。リクエストごとに署名を検証する</li>
+ * </ul>
+ * <ul>
+ *   <li>authenticatedRequest: users 人がログインした状態で、ランダムな 1 人の Cookie を付けて
+ *       大学名サジェスト（DB を使わない JSON）を取る。200 以外の応答の数は補助カウンタ failed に出す</li>
+ *   <li>footprint: サーバー側に残るセッションの数と 1 件あたりの大きさ、Cookie の長さを
+ *       補助カウンタ（Footprint）に出す（時間は意味が無いので 1 回だけ測る）</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class SessionModeBenchmark {
+
+    private static final String PASSWORD = "bench";
+
+    @Param({"session", "stateless"})
+    String mode;
+
+    @Param({"500"})
+    int users;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient http;
+    private URI suggestUri;
+    private final List<String> cookies = new ArrayList<>();
+
+    // 200 以外の応答の数（JMH が反復ごとに 0 に戻して読み取り、計測した反復の合計を結果に出す）
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long failed;
+    }
+
+    // ログイン中のユーザーがサーバーに残すもの。footprint は 1 回しか測らないので、値がそのまま結果になる
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long sessions;
+        public long sessionBytes;
+        public long cookieChars;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContext.start(1000,
+                "--app.session.stateless=" + "stateless".equals(mode),
+                "--app.session.secret=session-mode-benchmark-secret-0123456789",
+                "--app.rate-limit.enabled=false",
+                "--app.query-budget.fail-on-exceed=false");
+
+        // BCrypt は重いので、全員同じパスワードのハッシュを 1 回だけ作って使い回す
+        String hash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        for (int i = 0; i < users; i++) {
+            jdbc.update("insert into users (email, password, role, nickname, university)"
+                    + " values (?, ?, 'ROLE_STUDENT', ?, 'ベンチマーク大学')", email(i), hash, "user" + i);
+        }
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        for (int i = 0; i < users; i++) {
+            cookies.add(login(base, email(i)));
+        }
+
+        suggestUri = URI.create(base + "/api/reviews/universities/suggest?q="
+                + URLEncoder.encode("東京", StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int authenticatedRequest(Responses counts) throws Exception {
+        String cookie = cookies.get(ThreadLocalRandom.current().nextInt(cookies.size()));
+        HttpResponse<Void> response = http.send(HttpRequest.newBuilder(suggestUri).header("Cookie", cookie).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            counts.failed++;
+        }
+        return response.statusCode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void footprint(Footprint footprint) throws IOException {
+        measureSessions(footprint);
+        footprint.cookieChars = cookies.get(0).length();
+    }
+
+    private String login(String base, String email) throws Exception {
+        String form = "username=" + URLEncoder.encode(email, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8);
+        HttpResponse<Void> login = http.send(HttpRequest.newBuilder(URI.create(base + "/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (login.statusCode() != 302 || login.headers().firstValue("Location").orElse("").contains("error")) {
+            throw new IllegalStateException("Login failed: " + login.statusCode());
+        }
+        // JSESSIONID か UNIPASS_SESSION の「名前=値」だけを取り出す
+        return login.headers().allValues("Set-Cookie").stream()
+                .map(header -> header.substring(0, header.indexOf(';')))
+                .filter(cookie -> !cookie.endsWith("="))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No session cookie"));
+    }
+
+    private static String email(int i) {
+        return "bench" + i + "@example.com";
+    }
+
+    // Tomcat が持っているセッションの数と、1 件あたりの大きさ（直列化したバイト数。ヒープ上ではこれより大きい）
+    private void measureSessions(Footprint footprint) throws IOException {
+        TomcatWebServer server = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+        Context webapp = (Context) server.getTomcat().getHost().findChildren()[0];
+        Session[] all = webapp.getManager().findSessions();
+        footprint.sessions = all.length;
+        if (all.length == 0) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            for (Session session : all) {
+                ((StandardSession) session).writeObjectData(out);
+            }
+        }
+        footprint.sessionBytes = bytes.size() / all.length;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * 起動にかかる時間を、毎回新しい JVM で 1 回だけ測る（ウォームアップなし＝スケールゼロからの最初の 1 回）。
+ * <ul>
+ *   <li>schoolList: 大学名の一覧の読み込み（binary: ビルド時に作った passnavi_schools.bin／json: 元の JSON）</li>
+ *   <li>context: アプリケーションコンテキストの起動（aot=true は Spring AOT で事前処理したクラスを使う）</li>
+ * </ul>
+ * aot=true は事前処理済みのクラスが要るので、先に {@code ./mvnw -Pcold-start -DskipTests package} を実行しておく。
+ * CDS の効果は JVM の起動オプションの違いなので、ここでは測らない（Dockerfile を参照）。
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SchoolListState {
+
+        @Param({"binary", "json"})
+        String format;
+
+        final ObjectMapper objectMapper = new ObjectMapper();
+    }
+
+    @State(Scope.Benchmark)
+    public static class ContextState {
+
+        @Param({"false", "true"})
+        boolean aot;
+
+        @Setup
+        public void setUp() {
+            if (aot) {
+                try {
+                    Class.forName(DemoApplication.class.getName() + "__ApplicationContextInitializer");
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException("AOT classes not found: run ./mvnw -Pcold-start -DskipTests package first", e);
+                }
+            }
+            System.setProperty("spring.aot.enabled", String.valueOf(aot));
+        }
+    }
+
+    @Benchmark
+    public List<String> schoolList(SchoolListState state) throws Exception {
+        boolean binary = "binary".equals(state.format);
+        String resource = binary ? SchoolList.BINARY_RESOURCE : SchoolList.JSON_RESOURCE;
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            return binary ? SchoolList.readBinary(in) : SchoolList.readJson(state.objectMapper, in);
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext context(ContextState state) {
+        // Spring Security 6.2.1 の AOT の不具合を避ける引数（Dockerfile と同じ）
+        ConfigurableApplicationContext context = BenchmarkContext.run("startup",
+                "--app.query-budget.fail-on-exceed=false",
+                "--spring.main.allow-bean-definition-overriding=true");
+        context.close();
+        return context;
+    }
+}
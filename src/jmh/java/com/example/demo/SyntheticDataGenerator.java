@@ -0,0 +1,112 @@
+package com.example.demo;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * ベンチマーク用のダミーデータを JDBC のバッチ INSERT で投入する。
+ * 同じ seed なら同じデータになる。空の DB に入れる前提（id は 1 から連番になる）。
+ */
+final class SyntheticDataGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] COURSES = {
+            "線形代数", "微分積分", "統計学", "情報科学", "データベース", "プログラミング", "経済学", "心理学",
+            "社会学", "英語", "法学", "物理学", "化学", "生物学", "哲学", "日本史", "マーケティング", "会計学",
+            "機械学習", "アルゴリズム"};
+    private static final String[] COURSE_SUFFIXES = {"", "I", "II", "演習", "概論", "基礎", "応用"};
+    private static final String[] SURNAMES = {
+            "佐藤", "鈴木", "高橋", "田中", "伊藤", "渡辺", "山本", "中村", "小林", "加藤", "吉田", "山田",
+            "佐々木", "山口", "松本"};
+    private static final String[] GIVEN_NAMES = {"太郎", "花子", "健", "恵", "翔", "美咲", "大輔", "由美"};
+    private static final String[] UNIVERSITIES = {
+            "東京大学", "京都大学", "大阪大学", "東北大学", "名古屋大学", "九州大学", "北海道大学", "一橋大学",
+            "東京工業大学", "早稲田大学", "慶應義塾大学", "明治大学", "立教大学", "法政大学", "中央大学",
+            "青山学院大学", "同志社大学", "立命館大学", "関西大学", "東京理科大学"};
+    private static final String[] TEST_METHODS = {"筆記", "レポート", "小テスト", "なし"};
+    private static final String[] ATTENDANCE_METHODS = {"毎回", "たまに", "なし"};
+
+    private final JdbcTemplate jdbc;
+    private final Random random;
+
+    SyntheticDataGenerator(JdbcTemplate jdbc, long seed) {
+        this.jdbc = jdbc;
+        this.random = new Random(seed);
+    }
+
+    // reviews 件のレビューと、その 1/10 のユーザー、約 2 割のレビューに 1〜8 件のコメントを作る
+    void generate(int reviews) {
+        int users = Math.max(1, reviews / 10);
+        insertUsers(users);
+        insertReviews(reviews, users);
+        insertComments(reviews, users);
+    }
+
+    private void insertUsers(int count) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[] {"user" + i + "@example.com", "{noop}x", "ROLE_STUDENT",
+                    pick(SURNAMES) + i, pick(UNIVERSITIES)});
+            flushIfFull("insert into users (email, password, role, nickname, university) values (?, ?, ?, ?, ?)",
+                    batch, i == count);
+        }
+    }
+
+    private void insertReviews(int count, int users) {
+        String sql = "insert into review (course_name, teacher_name, university, test_method, attendance_method,"
+                + " rating, comment, created_at, user_id, likes) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= count; i++) {
+            batch.add(new Object[] {
+                    pick(COURSES) + pick(COURSE_SUFFIXES),
+                    pick(SURNAMES) + " " + pick(GIVEN_NAMES),
+                    random.nextInt(10) == 0 ? null : pick(UNIVERSITIES),
+                    pick(TEST_METHODS),
+                    pick(ATTENDANCE_METHODS),
+                    (double) (1 + random.nextInt(5)),
+                    "ダミーのレビュー本文 " + i,
+                    Timestamp.valueOf(now.minusMinutes(random.nextInt(60 * 24 * 730))),
+                    1 + random.nextInt(users),
+                    random.nextInt(10) == 0 ? random.nextInt(500) : random.nextInt(10)});
+            flushIfFull(sql, batch, i == count);
+        }
+    }
+
+    private void insertComments(int reviews, int users) {
+        String sql = "insert into comment (review_id, user_id, content, created_at, university, faculty, department)"
+                + " values (?, ?, ?, ?, ?, ?, ?)";
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int reviewId = 1; reviewId <= reviews; reviewId++) {
+            boolean last = reviewId == reviews;
+            if (random.nextInt(5) != 0) {
+                flushIfFull(sql, batch, last);
+                continue;
+            }
+            int comments = 1 + random.nextInt(8);
+            for (int c = 0; c < comments; c++) {
+                batch.add(new Object[] {reviewId, 1 + random.nextInt(users), "コメント " + c, createdAt,
+                        pick(UNIVERSITIES), "学部", "学科"});
+                flushIfFull(sql, batch, false);
+            }
+            flushIfFull(sql, batch, last);
+        }
+    }
+
+    private void flushIfFull(String sql, List<Object[]> batch, boolean force) {
+        if (batch.size() >= BATCH_SIZE || (force && !batch.isEmpty())) {
+            jdbc.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
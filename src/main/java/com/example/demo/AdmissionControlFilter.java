@@ -0,0 +1,156 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * DB を使うリクエストの同時実行数を接続プールの大きさまでに抑える（アドミッション制御）。
+ * 空きが無いリクエストはここで max-wait まで順番待ちさせ、それでも空かなければ 503 を返す。
+ * <p>
+ * 制御しないと、あふれたリクエストは接続プールの中で接続のタイムアウト（既定 30 秒）まで待ち続ける。
+ * 待たせる時間に上限があるので、混んでいるときは早めに 503 を返して Tomcat のスレッドを空けられる。
+ * <p>
+ * ログイン（BCrypt・ユーザー検索）も DB を使うので、Spring Security より前で数える。
+ * 非同期で応答を書き続けるリクエスト（エクスポートの StreamingResponseBody など）は、その間も接続を持っているので、
+ * 非同期処理が終わるまで枠を返さない。
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    // DB を使わない静的ファイル・ヘルスチェックは数えない
+    private static final String[] EXCLUDED_PREFIXES = {"/css/", "/js/", "/uploads/", "/actuator/health"};
+
+    private final boolean enabled;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter rejected;
+
+    public AdmissionControlFilter(MeterRegistry registry,
+                                  @Value("${app.admission.enabled:false}") boolean enabled,
+                                  @Value("${app.admission.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                                  @Value("${app.admission.max-wait:2s}") Duration maxWait) {
+        this.enabled = enabled;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.permits = new Semaphore(this.maxConcurrent, true);
+
+        Gauge.builder("app.admission.active", permits, p -> this.maxConcurrent - p.availablePermits())
+                .description("Requests currently admitted past admission control")
+                .register(registry);
+        Gauge.builder("app.admission.waiting", waiting, AtomicInteger::get)
+                .description("Requests waiting for admission")
+                .register(registry);
+        this.rejected = Counter.builder("app.admission.rejected")
+                .description("Requests rejected with 503 after waiting for admission")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String prefix : EXCLUDED_PREFIXES) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            log.debug("Rejected {} {}: {} requests already admitted", request.getMethod(), request.getRequestURI(),
+                    maxConcurrent);
+            response.setHeader("Retry-After", "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion());
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    // 非同期処理の完了・エラー・タイムアウトのどれかで 1 回だけ枠を返す
+    private final class ReleaseOnCompletion implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // startAsync をもう一度呼ぶとリスナーが外れるので、登録し直す
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
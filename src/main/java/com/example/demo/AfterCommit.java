@@ -0,0 +1,25 @@
+package com.example.demo;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// メモリ上の索引・集計への反映を、DB のコミットが済んでから行う（巻き戻ったトランザクションの分は反映しない）。
+// トランザクションの外で呼ばれたときはその場で実行する
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
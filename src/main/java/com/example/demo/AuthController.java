@@ -56,8 +56,14 @@ public class AuthController {
             return "register";
         }
 
-        // パスワードをハッシュ化
-        String encoded = passwordEncoder.encode(password);
+        // パスワードをハッシュ化（混み合っていて計算を断られたら、登録せずにもう一度試してもらう）
+        String encoded;
+        try {
+            encoded = passwordEncoder.encode(password);
+        } catch (PasswordHashingBusyException e) {
+            model.addAttribute("error", "ただいま混み合っています。しばらくしてからもう一度お試しください。");
+            return "register";
+        }
 
         // ROLE_STUDENT で保存
         User user = new User(email, encoded, "ROLE_STUDENT", trimmedNickname, university);
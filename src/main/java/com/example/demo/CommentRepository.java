@@ -1,8 +1,34 @@
 package com.example.demo;
 
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByReviewAndParentCommentIsNullOrderByIdAsc(Review review);
+
+    // 詳細画面用：レビューのコメント（返信も含む）を投稿者ごと 1 クエリで取得する
+    @Query("""
+            select c from Comment c
+            left join fetch c.user
+            where c.review.id = :reviewId
+            order by c.id asc
+            """)
+    List<Comment> findAllWithUserByReviewId(@Param("reviewId") Integer reviewId);
+
+    // 検索結果カード用：複数レビューの先頭コメントを投稿者ごと 1 クエリで取得する
+    @Query("""
+            select c from Comment c
+            left join fetch c.user
+            where c.review.id in :reviewIds
+              and c.parentComment is null
+              and (select count(c2) from Comment c2
+                   where c2.review = c.review
+                     and c2.parentComment is null
+                     and c2.id < c.id) < :limit
+            order by c.review.id asc, c.id asc
+            """)
+    List<Comment> findPreviewsByReviewIds(@Param("reviewIds") Collection<Integer> reviewIds,
+                                          @Param("limit") long limit);
 }
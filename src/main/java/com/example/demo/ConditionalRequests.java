@@ -0,0 +1,47 @@
+package com.example.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.StringJoiner;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+
+/**
+ * 条件付き GET（If-None-Match / If-Modified-Since）の共通処理。
+ * ETag はページを作る前に分かる値（更新番号・検索条件・ログインユーザーなど）から作るので、
+ * 変わっていなければ本体のクエリも画面の描画もせずに 304 を返せる。
+ * ログインユーザーごとに表示が変わるので、ブラウザにだけ保存させて（private）毎回問い合わせさせる（no-cache）。
+ */
+final class ConditionalRequests {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private ConditionalRequests() {
+    }
+
+    // 値を並べたものの要約を弱い ETag にする（HTML・JSON の組み立て方が変わっても同じ内容なら同じとみなす）
+    static String etag(Object... parts) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (Object part : parts) {
+            joiner.add(Objects.toString(part, ""));
+        }
+        return "W/\"" + DigestUtils.md5DigestAsHex(joiner.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    // 変わっていなければ 304 にして true を返す（呼び出し側はそのまま null を返す）
+    static boolean checkNotModified(NativeWebRequest request, String etag, LocalDateTime lastModified) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        if (lastModified == null) {
+            return request.checkNotModified(etag);
+        }
+        return request.checkNotModified(etag, lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+}
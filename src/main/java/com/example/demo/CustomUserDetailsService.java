@@ -1,18 +1,18 @@
 package com.example.demo;
 
-import java.util.Collections;
-
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository repository;
+    private final UserEntityCache userCache;
 
-    public CustomUserDetailsService(UserRepository repository) {
+    public CustomUserDetailsService(UserRepository repository, UserEntityCache userCache) {
         this.repository = repository;
+        this.userCache = userCache;
     }
 
     @Override
@@ -20,10 +20,18 @@ public class CustomUserDetailsService implements UserDetailsService {
         User user = repository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(),
-                user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority(user.getRole()))
-        );
+        // id・ニックネーム・大学もプリンシパルに持たせる（以降のリクエストで users を引かないため）
+        return LoginUser.of(user);
+    }
+
+    // ログイン成功時、保存済みのハッシュが今の strength より弱ければ、入力されたパスワードで作り直したハッシュを保存する
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails details, String newPassword) {
+        User user = repository.findByEmail(details.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + details.getUsername()));
+        user.setPassword(newPassword);
+        userCache.invalidate(user.getId());
+        return LoginUser.of(user);
     }
 }
@@ -0,0 +1,286 @@
+package com.example.demo;
+
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 投稿画像の非同期処理。
+ * リクエストスレッドではアップロードを staging に移すだけにして、
+ * 縮小版（一覧用サムネイル・詳細用表示サイズ）の生成は上限付きのワーカーで行う。
+ * <p>
+ * キューが一杯のときはリクエストスレッドでは処理せず、元画像だけ先に公開して縮小版は後回しにする。
+ * レビューに紐づいた staging のファイル（{@code <レビューID>_<名前>}）は処理が終わるまで残るので、
+ * 後回しにしたもの・停止で捨てたジョブの分は、起動時と sweep-interval ごとの見回りで処理し直す。
+ */
+@Service
+public class ImageProcessingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessingService.class);
+
+    static final int THUMBNAIL_WIDTH = 320;
+    static final int DISPLAY_WIDTH = 1280;
+
+    // レビューに紐づけた staging のファイル名（先頭がレビュー ID）
+    private static final Pattern CLAIMED = Pattern.compile("(\\d+)_.+");
+
+    private final ReviewService reviewService;
+    private final Path uploadDir;
+    private final Path stagingDir;
+    private final Duration stagingMaxAge;
+    private final ThreadPoolExecutor executor;
+
+    // キューに入っている・処理中の staging のファイル（見回りで二重に投入しないため）
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageProcessingService(ReviewService reviewService,
+                                  @Value("${app.images.dir:uploads}") String uploadDir,
+                                  @Value("${app.images.staging-dir:uploads-staging}") String stagingDir,
+                                  @Value("${app.images.workers:2}") int workers,
+                                  @Value("${app.images.queue-capacity:100}") int queueCapacity,
+                                  @Value("${app.images.staging-max-age:PT1H}") Duration stagingMaxAge) {
+        this.reviewService = reviewService;
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.stagingDir = Paths.get(stagingDir).toAbsolutePath().normalize();
+        this.stagingMaxAge = stagingMaxAge;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // キューが一杯のときは投入を断る（AbortPolicy）。リクエストスレッドでデコード・縮小はしない
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // アップロードを staging に置く（Tomcat の一時ファイルからの移動なので画像サイズにほぼ依存しない）
+    public Path stage(MultipartFile imageFile) throws IOException {
+        // ファイルが空なら何もしない
+        if (imageFile == null || imageFile.isEmpty()) {
+            return null;
+        }
+
+        Files.createDirectories(stagingDir);
+
+        // 元ファイル名から拡張子だけもらう
+        String originalFilename = imageFile.getOriginalFilename();
+        String ext = "";
+        if (originalFilename != null) {
+            int dot = originalFilename.lastIndexOf(".");
+            if (dot != -1) {
+                ext = originalFilename.substring(dot).toLowerCase(Locale.ROOT); // .png, .jpg など
+            }
+        }
+
+        Path staged = stagingDir.resolve(UUID.randomUUID() + ext);
+        imageFile.transferTo(staged);
+        return staged;
+    }
+
+    // staging の画像をレビューに紐づけてから処理に回す。終わったらレビューに画像パスを記録する
+    public void submit(Integer reviewId, Path staged) {
+        if (reviewId == null || staged == null) {
+            return;
+        }
+        Path claimed;
+        try {
+            claimed = Files.move(staged, staged.resolveSibling(reviewId + "_" + staged.getFileName()));
+        } catch (IOException e) {
+            log.warn("Failed to claim staged image {} for review {}", staged, reviewId, e);
+            return;
+        }
+        if (!enqueue(reviewId, claimed)) {
+            // 縮小版は見回りで作る。それまでは元画像を表示する
+            log.warn("Image queue is full; deferring variants of {} for review {}", claimed, reviewId);
+            publishOriginal(reviewId, claimed);
+        }
+    }
+
+    private boolean enqueue(Integer reviewId, Path claimed) {
+        if (!inFlight.add(claimed)) {
+            return true; // もう入っている
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(reviewId, claimed);
+                } finally {
+                    inFlight.remove(claimed);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(claimed);
+            return false;
+        }
+    }
+
+    // staging のファイルは残したまま、元画像のコピーだけ公開する
+    private void publishOriginal(Integer reviewId, Path claimed) {
+        try {
+            Files.createDirectories(uploadDir);
+            String fileName = claimed.getFileName().toString();
+            Files.copy(claimed, uploadDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+            reviewService.attachImages(reviewId, "/uploads/" + fileName, null, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to publish original image {} for review {}", claimed, reviewId, e);
+        }
+    }
+
+    // 起動時（前回の停止で捨てたジョブ）と定期的に（キューが一杯で後回しにしたもの）staging を見回る
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.images.sweep-interval:PT1M}",
+            initialDelayString = "${app.images.sweep-interval:PT1M}")
+    public void sweepStaging() {
+        if (!Files.isDirectory(stagingDir)) {
+            return;
+        }
+        Instant expiry = Instant.now().minus(stagingMaxAge);
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Matcher matcher = CLAIMED.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    if (!enqueue(Integer.valueOf(matcher.group(1)), file)) {
+                        return; // まだ一杯なので次の見回りで
+                    }
+                } else if (Files.getLastModifiedTime(file).toInstant().isBefore(expiry)) {
+                    // レビューの保存前に失敗したアップロードの残り
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to sweep staged images in {}", stagingDir, e);
+        }
+    }
+
+    void process(Integer reviewId, Path staged) {
+        if (!Files.exists(staged)) {
+            return; // 先に処理し終わっている
+        }
+        try {
+            Files.createDirectories(uploadDir);
+            String fileName = staged.getFileName().toString();
+            int dot = fileName.lastIndexOf('.');
+            String baseName = dot == -1 ? fileName : fileName.substring(0, dot);
+
+            String displayPath = null;
+            String thumbnailPath = null;
+            BufferedImage source = read(staged, DISPLAY_WIDTH);
+            if (source != null) {
+                BufferedImage display = resize(source, DISPLAY_WIDTH);
+                ImageIO.write(display, "jpg", uploadDir.resolve(baseName + "_display.jpg").toFile());
+                displayPath = "/uploads/" + baseName + "_display.jpg";
+
+                BufferedImage thumbnail = resize(display, THUMBNAIL_WIDTH);
+                ImageIO.write(thumbnail, "jpg", uploadDir.resolve(baseName + "_thumb.jpg").toFile());
+                thumbnailPath = "/uploads/" + baseName + "_thumb.jpg";
+            }
+
+            // 元画像も公開ディレクトリへ（読めない形式でも元画像だけは表示できるようにする）
+            Files.move(staged, uploadDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+            reviewService.attachImages(reviewId, "/uploads/" + fileName, displayPath, thumbnailPath);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to process image {} for review {}", staged, reviewId, e);
+        }
+    }
+
+    // 大きすぎる画像は間引きながらデコードして、メモリに全画素を展開しないようにする
+    private static BufferedImage read(Path file, int targetWidth) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, width / (targetWidth * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // 幅が targetWidth 以下になるよう縮小する（拡大はしない）。JPEG 用に透過は白で塗る
+    static BufferedImage resize(BufferedImage source, int targetWidth) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int newWidth = Math.min(width, targetWidth);
+        int newHeight = Math.max(1, (int) Math.round(height * (newWidth / (double) width)));
+
+        BufferedImage current = source;
+        // 一度に大きく縮めると荒くなるので、半分ずつ縮めてから最後に合わせる
+        while (current.getWidth() / 2 >= newWidth) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        return draw(current, newWidth, newHeight);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    // 止めたときにキューに残ったジョブのファイルは staging に残るので、次の起動時の見回りで処理する
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo;
+
+import java.util.Collections;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * ログイン中ユーザーのプリンシパル。
+ * ログイン時に読んだ users の行から id・ニックネーム・大学を持たせておき、
+ * リクエストのたびに findByEmail しなくて済むようにする。
+ */
+public class LoginUser extends org.springframework.security.core.userdetails.User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String nickname;
+    private final String university;
+
+    public LoginUser(Long id, String email, String password, String role, String nickname, String university) {
+        super(email, password, Collections.singletonList(new SimpleGrantedAuthority(role)));
+        this.id = id;
+        this.nickname = nickname;
+        this.university = university;
+    }
+
+    public static LoginUser of(User user) {
+        return new LoginUser(user.getId(), user.getEmail(), user.getPassword(), user.getRole(),
+                user.getNickname(), user.getUniversity());
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return getUsername(); }
+    public String getNickname() { return nickname; }
+    public String getUniversity() { return university; }
+}
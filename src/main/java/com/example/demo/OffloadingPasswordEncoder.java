@@ -0,0 +1,132 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * パスワードのハッシュ計算・照合を、リクエストのスレッドではなく専用の小さなスレッドプールで行う PasswordEncoder。
+ * <p>
+ * BCrypt は 1 回で数十ミリ秒 CPU を使うので、学期初めのようにログインが集中すると検索などの処理に CPU が回らなくなる。
+ * 同時に計算する数をスレッド数までに抑え、待てる件数（queue-capacity）を超えた分・max-wait までに終わらない分は
+ * {@link PasswordHashingBusyException} で断る。
+ */
+final class OffloadingPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+    private final Counter rejected;
+
+    OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait,
+                              MeterRegistry registry) {
+        this.delegate = delegate;
+        this.maxWaitNanos = maxWait.toNanos();
+
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("app.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hash computations in progress")
+                .register(registry);
+        Gauge.builder("app.password.queued", executor, e -> e.getQueue().size())
+                .description("Password hash computations waiting for a thread")
+                .register(registry);
+        this.rejected = Counter.builder("app.password.rejected")
+                .description("Password hash computations rejected because the queue was full or too slow")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // 保存済みのハッシュが今の strength より弱ければ true（ログイン成功時に DaoAuthenticationProvider が掛け直す）
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T offload(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many password hash computations are waiting");
+        }
+        try {
+            return future.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hash computation did not finish in time");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for a password hash computation");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 1 回の BCrypt が target 以内に収まる一番大きい strength（min〜max）。
+     * min で実際に測り、1 増えるごとに 2 倍になるとして伸ばす。min でも target を超えるときは min。
+     */
+    static int calibrateBCryptStrength(Duration target, int min, int max) {
+        // JIT が効く前の 1 回目は遅いので、軽い strength で何回か回してから測る
+        BCryptPasswordEncoder warmUp = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < 20; i++) {
+            warmUp.encode("calibration");
+        }
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(min);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        int strength = min;
+        long estimate = best;
+        while (strength < max && estimate * 2 <= target.toNanos()) {
+            strength++;
+            estimate *= 2;
+        }
+        return strength;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+// パスワードのハッシュ計算の待ち行列がいっぱい、または max-wait までに順番が来なかった（ログイン時は /login?busy へ）
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * パスワードのハッシュ計算（BCrypt）の設定（app.password.*）。
+ * strength を指定しなければ、起動時に 1 回の計算が target-latency 以内に収まる一番大きい strength を測って決める
+ * （開発用。起動のたびに値が変わりうるので、本番では strength を固定する）。
+ */
+@Component
+@ConfigurationProperties(prefix = "app.password")
+public class PasswordHashingProperties {
+
+    // BCrypt の strength（4〜31。1 増えるごとに計算時間が 2 倍）。null なら target-latency から決める
+    private Integer strength;
+
+    private Duration targetLatency = Duration.ofMillis(100);
+
+    // 測って決めるときもこれより弱くはしない（BCryptPasswordEncoder の既定値）
+    private int minStrength = 10;
+
+    private int maxStrength = 14;
+
+    // ハッシュ計算専用のスレッド数。リクエストのスレッドは計算が終わるのを待つだけになる
+    private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // スレッドが空くのを待てる件数。超えたら待たせずに断る
+    private int queueCapacity = 32;
+
+    // 順番待ちを含めて 1 件にかけてよい時間
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    public Integer getStrength() {
+        return strength;
+    }
+
+    public void setStrength(Integer strength) {
+        this.strength = strength;
+    }
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(Duration targetLatency) {
+        this.targetLatency = targetLatency;
+    }
+
+    public int getMinStrength() {
+        return minStrength;
+    }
+
+    public void setMinStrength(int minStrength) {
+        this.minStrength = minStrength;
+    }
+
+    public int getMaxStrength() {
+        return maxStrength;
+    }
+
+    public void setMaxStrength(int maxStrength) {
+        this.maxStrength = maxStrength;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+}
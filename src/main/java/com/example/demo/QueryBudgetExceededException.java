@@ -0,0 +1,9 @@
+package com.example.demo;
+
+// 1 リクエストの SQL 件数が QueryBudgetProperties の上限を超えた（N+1 の検出用）
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
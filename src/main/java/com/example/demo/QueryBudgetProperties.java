@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 1 リクエストあたりの SQL 件数の上限（app.query-budget.*）。
+ * limits のキーは @GetMapping などに書いた URI パターン（例: app.query-budget.limits[/reviews/{id}]=10）。
+ */
+@Component
+@ConfigurationProperties(prefix = "app.query-budget")
+public class QueryBudgetProperties {
+
+    // パターンごとの指定が無いときの上限（0 以下なら上限なし）
+    private int defaultLimit = 0;
+
+    private Map<String, Integer> limits = new LinkedHashMap<>();
+
+    // 上限を超えたらいつもログに警告を出し、app.sql.budget.exceeded を数える。
+    // true ならさらに例外を投げる（テスト用。応答を描き終えた後なので、実際のクライアントへの応答は変わらない）
+    private boolean failOnExceed = false;
+
+    public int limitFor(String uriPattern) {
+        return limits.getOrDefault(uriPattern, defaultLimit);
+    }
+
+    public int getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public Map<String, Integer> getLimits() {
+        return limits;
+    }
+
+    public void setLimits(Map<String, Integer> limits) {
+        this.limits = limits;
+    }
+
+    public boolean isFailOnExceed() {
+        return failOnExceed;
+    }
+
+    public void setFailOnExceed(boolean failOnExceed) {
+        this.failOnExceed = failOnExceed;
+    }
+}
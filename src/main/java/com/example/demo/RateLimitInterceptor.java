@@ -0,0 +1,74 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * {@link RateLimited} が付いたハンドラーの前で WriteRateLimiter に問い合わせ、超えていれば 429 を返す。
+ * ハンドラーより前なので、断るリクエストではエンティティの読み込みも DB の接続も発生しない。
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final WriteRateLimiter limiter;
+    private final Counter rejected;
+
+    public RateLimitInterceptor(WriteRateLimiter limiter, MeterRegistry registry) {
+        this.limiter = limiter;
+        this.rejected = Counter.builder("app.rate-limit.rejected")
+                .description("Write requests rejected with 429 by the rate limiter")
+                .register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!(handler instanceof HandlerMethod method) || !method.hasMethodAnnotation(RateLimited.class)) {
+            return true;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return true; // ログインしていなければ Spring Security が先に断っている
+        }
+
+        if (limiter.tryAcquire(userKey(auth), reviewId(request))) {
+            return true;
+        }
+        rejected.increment();
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(limiter.getRetryAfterSeconds()));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "操作が多すぎます。しばらくしてからもう一度お試しください。");
+        return false;
+    }
+
+    // ユーザー id。LoginUser 導入前のセッションはメールアドレスから作る（id と重ならないよう負の値）
+    private static long userKey(Authentication auth) {
+        if (auth.getPrincipal() instanceof LoginUser loginUser && loginUser.getId() != null) {
+            return loginUser.getId();
+        }
+        return -1L - (auth.getName().hashCode() & 0xFFFFFFFFL);
+    }
+
+    // パスの {id}（レビュー id）。無い・数字でないときは null
+    private static Integer reviewId(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(variables instanceof Map<?, ?> map) || !(map.get("id") instanceof String id)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 書き込み系エンドポイントの流量制限（app.rate-limit.*）。
+ * ユーザーごと・レビューごとにトークンバケットを持ち、どちらかが空なら 429 を返す。
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // ロックを分ける区画の数（2 のべき乗に切り上げる）
+    private int stripes = 64;
+
+    // 1 人のユーザーが続けて書き込める回数と、1 秒あたりに戻る回数
+    private Bucket perUser = new Bucket(20, 1.0);
+
+    // 1 件のレビューに対する書き込み（いいね・コメントなど）を全ユーザー合わせて
+    private Bucket perReview = new Bucket(60, 5.0);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public Bucket getPerUser() {
+        return perUser;
+    }
+
+    public void setPerUser(Bucket perUser) {
+        this.perUser = perUser;
+    }
+
+    public Bucket getPerReview() {
+        return perReview;
+    }
+
+    public void setPerReview(Bucket perReview) {
+        this.perReview = perReview;
+    }
+
+    public static class Bucket {
+        private int capacity;
+        private double refillPerSecond;
+
+        public Bucket() {
+        }
+
+        public Bucket(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 書き込み系のハンドラーに付けると、RateLimitInterceptor がユーザーごと（パスに {id} があればレビューごとにも）
+ * 回数を制限する。超えたらハンドラーを呼ばずに 429 を返す。
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+}
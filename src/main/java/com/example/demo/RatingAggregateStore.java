@@ -0,0 +1,293 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 授業名・教員名ごとの評価の集計（件数・合計・★1〜5 の件数）を持っておくストア。
+ * レビューの投稿・編集・削除のたびに差分で更新するので、平均や評価サマリーを
+ * レビューを読み直さずに返せる。キーは SearchText で正規化した名前。
+ * 部分一致で名前を探すときは、名前の bi-gram から候補を絞る（検索インデックスと同じやり方）。
+ * <p>
+ * 構築・差分の反映・再構築は RebuildableState に任せる。このインスタンスでの書き込みはコミット後に反映する。
+ * 他のインスタンスでの書き込みは ReviewSearchDataRefresher が検索インデックスと一緒に定期的に取り込む。
+ */
+@Component
+public class RatingAggregateStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RatingAggregateStore.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    enum Dimension { COURSE, TEACHER }
+
+    private final ReviewRepository repository;
+    private final RebuildableState<State> state;
+
+    public RatingAggregateStore(ReviewRepository repository,
+                                @Value("${app.rating-aggregates.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.state = new RebuildableState<>("rating-aggregates", enabled, new State());
+    }
+
+    // 構築が終わるまでは DB 集計にフォールバック
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        state.buildInBackground(this::load);
+    }
+
+    public boolean isReady() {
+        return state.isReady();
+    }
+
+    // 集計が変わるたびに進む番号（このインスタンスの中でだけ意味がある）
+    public long getGeneration() {
+        return state.generation();
+    }
+
+    public void rebuild() {
+        state.rebuild(this::load);
+        int size = state.read(current -> current.contributions.size());
+        log.info("Rating aggregates built: {} reviews", size);
+    }
+
+    private State load() {
+        State fresh = new State();
+        repository.forEachIndexRow(REBUILD_BATCH_SIZE, row ->
+                fresh.put(row.getId(), Contribution.of(row.getCourseName(), row.getTeacherName(), row.getRating())));
+        return fresh;
+    }
+
+    // =========================
+    // 差分更新（ReviewService の保存・削除から呼ばれる）
+    // =========================
+    public void record(Review review) {
+        if (review == null || review.getId() == null) {
+            return;
+        }
+        int id = review.getId();
+        Contribution contribution = Contribution.of(review.getCourseName(), review.getTeacherName(), review.getRating());
+        state.apply(current -> current.put(id, contribution));
+    }
+
+    // DB から読み直した行をそのまま反映する（他のインスタンスでの書き込みの取り込み）
+    public void recordRows(List<ReviewRepository.IndexRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Contribution> contributions = new ArrayList<>(rows.size());
+        for (ReviewRepository.IndexRow row : rows) {
+            contributions.add(Contribution.of(row.getCourseName(), row.getTeacherName(), row.getRating()));
+        }
+        state.apply(current -> {
+            for (int i = 0; i < rows.size(); i++) {
+                current.put(rows.get(i).getId(), contributions.get(i));
+            }
+        });
+    }
+
+    public void remove(Integer id) {
+        if (id == null) {
+            return;
+        }
+        state.apply(current -> current.remove(id));
+    }
+
+    // =========================
+    // 参照
+    // =========================
+
+    // 名前に keyword を含む授業・教員の集計を足し合わせる。
+    // 完全一致する名前があっても、それを含む別の名前（「英語」に対する「英語I」など）も足す。
+    // 検索結果の一覧や DB での集計（ReviewService の Containing のクエリ）と同じ範囲にするため。
+    // 見るのは keyword の bi-gram をすべて持つ名前だけ（1 文字の keyword は bi-gram で引けないので全部の名前）
+    public Aggregate find(Dimension dimension, String keyword) {
+        String key = SearchText.normalize(keyword);
+        Aggregate result = new Aggregate();
+        if (key.isEmpty()) {
+            return result;
+        }
+
+        return state.read(current -> {
+            Map<String, Aggregate> map = current.aggregates.get(dimension);
+            for (String name : current.candidates(dimension, key)) {
+                if (name.contains(key)) {
+                    result.add(map.get(name));
+                }
+            }
+            return result;
+        });
+    }
+
+    // 集計値（find が返すのはコピーなので、呼び出し側で自由に読んでよい）
+    public static class Aggregate {
+        private long count;
+        private double sum;
+        private final long[] starCounts = new long[6];
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        // starCounts[1]〜starCounts[5] が★ごとの件数
+        public long[] getStarCounts() {
+            return starCounts.clone();
+        }
+
+        private void add(Aggregate other) {
+            count += other.count;
+            sum += other.sum;
+            for (int star = 1; star <= 5; star++) {
+                starCounts[star] += other.starCounts[star];
+            }
+        }
+
+        private void add(Contribution c, int sign) {
+            count += sign;
+            sum += sign * c.rating;
+            starCounts[c.star] += sign;
+        }
+
+        private boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    // =========================
+    // 内部データ構造
+    // =========================
+
+    // 1 件のレビューが集計に足している分（編集・削除のときに引くために覚えておく）
+    private static final class Contribution {
+        final String courseKey;
+        final String teacherKey;
+        final double rating;
+        final int star;
+
+        Contribution(String courseKey, String teacherKey, double rating) {
+            this.courseKey = courseKey;
+            this.teacherKey = teacherKey;
+            this.rating = rating;
+            this.star = Math.max(1, Math.min(5, (int) Math.round(rating)));
+        }
+
+        static Contribution of(String courseName, String teacherName, double rating) {
+            return new Contribution(SearchText.normalize(courseName), SearchText.normalize(teacherName), rating);
+        }
+
+        String key(Dimension dimension) {
+            return dimension == Dimension.COURSE ? courseKey : teacherKey;
+        }
+    }
+
+    private static final class State {
+        final Map<Integer, Contribution> contributions = new HashMap<>();
+        final Map<Dimension, Map<String, Aggregate>> aggregates = new EnumMap<>(Dimension.class);
+        // bi-gram → その bi-gram を含む名前（aggregates にある名前だけ）
+        final Map<Dimension, Map<String, Set<String>>> namesByGram = new EnumMap<>(Dimension.class);
+
+        State() {
+            for (Dimension dimension : Dimension.values()) {
+                aggregates.put(dimension, new HashMap<>());
+                namesByGram.put(dimension, new HashMap<>());
+            }
+        }
+
+        // key を含むかもしれない名前（key の bi-gram をすべて持つもの）
+        Iterable<String> candidates(Dimension dimension, String key) {
+            if (key.length() < SearchText.GRAM_SIZE) {
+                return aggregates.get(dimension).keySet();
+            }
+            Map<String, Set<String>> byGram = namesByGram.get(dimension);
+            List<Set<String>> sets = new ArrayList<>();
+            for (String gram : SearchText.grams(key)) {
+                Set<String> names = byGram.get(gram);
+                if (names == null) {
+                    return List.of();
+                }
+                sets.add(names);
+            }
+            sets.sort(Comparator.comparingInt(Set::size));
+            List<String> result = new ArrayList<>();
+            for (String name : sets.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < sets.size() && inAll; i++) {
+                    inAll = sets.get(i).contains(name);
+                }
+                if (inAll) {
+                    result.add(name);
+                }
+            }
+            return result;
+        }
+
+        void put(int id, Contribution contribution) {
+            Contribution old = contributions.put(id, contribution);
+            if (old != null) {
+                apply(old, -1);
+            }
+            apply(contribution, 1);
+        }
+
+        void remove(int id) {
+            Contribution old = contributions.remove(id);
+            if (old != null) {
+                apply(old, -1);
+            }
+        }
+
+        private void apply(Contribution c, int sign) {
+            for (Dimension dimension : Dimension.values()) {
+                String key = c.key(dimension);
+                if (key.isEmpty()) {
+                    continue;
+                }
+                Map<String, Aggregate> map = aggregates.get(dimension);
+                Aggregate aggregate = map.get(key);
+                if (aggregate == null) {
+                    aggregate = new Aggregate();
+                    map.put(key, aggregate);
+                    indexName(dimension, key);
+                }
+                aggregate.add(c, sign);
+                if (aggregate.isEmpty()) {
+                    map.remove(key);
+                    unindexName(dimension, key);
+                }
+            }
+        }
+
+        private void indexName(Dimension dimension, String name) {
+            Map<String, Set<String>> byGram = namesByGram.get(dimension);
+            for (String gram : SearchText.grams(name)) {
+                byGram.computeIfAbsent(gram, g -> new HashSet<>()).add(name);
+            }
+        }
+
+        private void unindexName(Dimension dimension, String name) {
+            Map<String, Set<String>> byGram = namesByGram.get(dimension);
+            for (String gram : SearchText.grams(name)) {
+                Set<String> names = byGram.get(gram);
+                if (names != null && names.remove(name) && names.isEmpty()) {
+                    byGram.remove(gram);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * DB から全件を読んで作り、その後は差分で更新するメモリ上のデータ（検索インデックス・評価の集計）の入れ物。
+ * <ul>
+ *   <li>起動時は別スレッドで構築する（構築が終わるまでは isReady() が false で、呼び出し側は DB にフォールバックする）</li>
+ *   <li>差分はコミットの後に反映する（AfterCommit）</li>
+ *   <li>再構築のあいだに来た差分は、作り直したものにも反映し直してから入れ替える</li>
+ * </ul>
+ * 中身（S）は lock で保護するので、読むときは read() の中で読む。
+ * 中身が変わるたび（差分の反映・再構築）に世代を 1 進める（検索結果の ETag に使う）。
+ */
+final class RebuildableState<S> {
+
+    private static final Logger log = LoggerFactory.getLogger(RebuildableState.class);
+
+    private final String name;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 以下は lock で保護する
+    private S current;
+    private List<Consumer<S>> pendingChanges; // 再構築中に来た更新（再構築後に反映し直す）
+
+    private volatile boolean ready;
+
+    // 中身を変えるのと同じ書き込みロックの中で進めるので、読んだ世代より古い中身が見えることはない
+    private final AtomicLong generation = new AtomicLong();
+
+    RebuildableState(String name, boolean enabled, S initial) {
+        this.name = name;
+        this.enabled = enabled;
+        this.current = initial;
+    }
+
+    // 起動をブロックしないよう、別スレッドで構築する
+    void buildInBackground(Supplier<S> loader) {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(() -> {
+            try {
+                rebuild(loader);
+            } catch (RuntimeException e) {
+                log.warn("Failed to build {}; falling back to the database", name, e);
+            }
+        }, name);
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    long generation() {
+        return generation.get();
+    }
+
+    // loader で作り直して入れ替える（読み込み中も検索・更新は今のもので続ける）
+    synchronized void rebuild(Supplier<S> loader) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S fresh;
+        try {
+            fresh = loader.get();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Consumer<S> change : pendingChanges) {
+                change.accept(fresh);
+            }
+            current = fresh;
+            pendingChanges = null;
+            ready = true;
+            generation.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 反映するのはコミットの後（変更の中身は呼び出し元のトランザクションの中で作っておく）
+    void apply(Consumer<S> change) {
+        if (!enabled) {
+            return;
+        }
+        AfterCommit.run(() -> applyNow(change));
+    }
+
+    private void applyNow(Consumer<S> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(current);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+            generation.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    <R> R read(Function<S, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
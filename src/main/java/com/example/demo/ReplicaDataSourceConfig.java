@@ -0,0 +1,95 @@
+package com.example.demo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * 読み取りをレプリカへ振り分ける DataSource の構成。app.datasource.replica.url を設定したときだけ有効になり、
+ * 設定しなければ今までどおり spring.datasource の 1 本だけを使う。
+ * <ul>
+ *   <li>primary: spring.datasource.*（プールは spring.datasource.hikari.*）。Flyway のマイグレーションもこちら</li>
+ *   <li>replica: app.datasource.replica.*（プールは app.datasource.replica.hikari.*。ユーザー名・パスワードは省略するとプライマリと同じ）</li>
+ * </ul>
+ * アプリ（JPA・JdbcTemplate）が使うのは両方を束ねた ReplicaRoutingDataSource で、
+ * 読み取り専用トランザクションだけがレプリカへ行く。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties(prefix = "app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties primary,
+                                              @Value("${app.datasource.replica.url}") String url,
+                                              @Value("${app.datasource.replica.username:}") String username,
+                                              @Value("${app.datasource.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primary.determineDriverClassName())
+                .url(url)
+                .username(username.isEmpty() ? primary.determineUsername() : username)
+                .password(username.isEmpty() ? primary.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        // レプリカには書かないので、誤って書き込みが来たら DB 側で弾かせる
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    // 他の DataSource は SqlCountingDataSourcePostProcessor で包まれるので、具体的な型ではなく DataSource で受け取る
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Route.PRIMARY, primary,
+                ReplicaRoutingDataSource.Route.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // OSIV ではリクエストの間ずっと同じ接続を持ち続けるので、最初のトランザクションの振り分けが最後まで残ってしまう。
+    // トランザクションごとに接続を返させ、次のトランザクションで振り分け直す
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandling() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReplicaPinFilter> replicaPinFilter(
+            @Value("${app.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        FilterRegistrationBean<ReplicaPinFilter> registration = new FilterRegistrationBean<>(new ReplicaPinFilter(window));
+        // ログイン（POST /login）もプライマリで処理するよう、Spring Security より前に置く
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 20);
+        return registration;
+    }
+}
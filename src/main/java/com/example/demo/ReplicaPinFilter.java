@@ -0,0 +1,69 @@
+package com.example.demo;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * 書き込んだ人の読み取りを、レプリカが追いつくまでプライマリに固定する（read-your-writes）。
+ * <ul>
+ *   <li>GET・HEAD 以外（投稿・編集・いいね・コメントなど）はリクエスト全体をプライマリで処理し、
+ *       window の間だけ有効な Cookie を返す</li>
+ *   <li>その Cookie が付いた GET もプライマリで処理する（投稿後のリダイレクト先で自分の書き込みが見える）</li>
+ * </ul>
+ * Cookie で持つので、どのインスタンスに来ても同じように振り分けられる。
+ * レプリカを使うとき（app.datasource.replica.url）だけ ReplicaDataSourceConfig が登録する。
+ */
+class ReplicaPinFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "PRIMARY_PIN";
+
+    private final int windowSeconds;
+
+    ReplicaPinFilter(Duration window) {
+        this.windowSeconds = (int) Math.max(1, window.toSeconds());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean write = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        if (!write && !hasPinCookie(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (write) {
+            // リダイレクトで本文より先にヘッダーが送られるので、処理の前に付けておく
+            Cookie cookie = new Cookie(COOKIE_NAME, "1");
+            cookie.setPath("/");
+            cookie.setMaxAge(windowSeconds);
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        Boolean previous = ReplicaRoutingDataSource.pin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.restore(previous);
+        }
+    }
+
+    private static boolean hasPinCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
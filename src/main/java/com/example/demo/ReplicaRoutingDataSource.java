@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import java.util.function.Supplier;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 読み取り専用トランザクション（@Transactional(readOnly = true)）の接続をレプリカへ、それ以外をプライマリへ振り分ける。
+ * 振り分けは接続を取り出す時点で決まるので、LazyConnectionDataSourceProxy で包み、
+ * トランザクションの readOnly が決まってから最初の SQL で接続を取り出させる（ReplicaDataSourceConfig）。
+ * <p>
+ * 書いた直後の読み取り（read-your-writes）はレプリカの遅れで古い値が見えるので、
+ * {@link #pinToPrimary(Supplier)} の中・ReplicaPinFilter が固定したリクエストの中はすべてプライマリへ送る。
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return currentRoute();
+    }
+
+    static Route currentRoute() {
+        if (Boolean.TRUE.equals(PINNED.get())) {
+            return Route.PRIMARY;
+        }
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    // action の中の読み取りはすべてプライマリから（入れ子で呼んでも外側の固定は外さない）
+    static <T> T pinToPrimary(Supplier<T> action) {
+        Boolean previous = pin();
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // pin() の戻り値を restore() に渡して元に戻す（例外を投げる処理を挟むフィルター用）
+    static Boolean pin() {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        return previous;
+    }
+
+    static void restore(Boolean previous) {
+        if (previous == null) {
+            PINNED.remove();
+        } else {
+            PINNED.set(previous);
+        }
+    }
+}
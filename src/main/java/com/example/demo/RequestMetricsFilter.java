@@ -0,0 +1,91 @@
+package com.example.demo;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * リクエストごとの SQL 件数・時間をメトリクスに記録し、件数が上限を超えたら知らせる。
+ * ビューの描画（open-in-view での遅延ロード）まで含めて数える。
+ * <ul>
+ *   <li>app.sql.statements: SQL の件数（uri・method タグ付き）</li>
+ *   <li>app.sql.time: SQL の実行時間の合計</li>
+ *   <li>app.sql.budget.exceeded: SQL の件数が上限（app.query-budget.*）を超えたリクエストの数</li>
+ * </ul>
+ * レスポンス時間そのものは Spring MVC の http.server.requests に出る。
+ * <p>
+ * 件数はレスポンスを描き終えてから分かるので、上限を超えてもそのリクエストの応答は変えられない。
+ * 本番ではログの警告と app.sql.budget.exceeded で知らせる。fail-on-exceed は MockMvc のテスト用で、
+ * 例外がテストまで届いて失敗になる（実際のサーバーでは応答を送った後なのでログに出るだけ）。
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    private final MeterRegistry registry;
+    private final QueryBudgetProperties budget;
+
+    public RequestMetricsFilter(MeterRegistry registry, QueryBudgetProperties budget) {
+        this.registry = registry;
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        SqlStatementCounter.Stats stats;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            stats = SqlStatementCounter.stop();
+        }
+
+        // コントローラーに届かなかったリクエスト（静的ファイル・ログイン画面へのリダイレクトなど）は記録しない
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return;
+        }
+        String uri = pattern.toString();
+        String method = request.getMethod();
+
+        DistributionSummary.builder("app.sql.statements")
+                .description("SQL statements executed per request")
+                .tags("uri", uri, "method", method)
+                .register(registry)
+                .record(stats.getCount());
+        Timer.builder("app.sql.time")
+                .description("Time spent executing SQL per request")
+                .tags("uri", uri, "method", method)
+                .register(registry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+
+        int limit = budget.limitFor(uri);
+        if (limit > 0 && stats.getCount() > limit) {
+            String message = method + " " + uri + " executed " + stats.getCount()
+                    + " SQL statements (budget " + limit + ")";
+            log.warn(message);
+            Counter.builder("app.sql.budget.exceeded")
+                    .description("Requests that executed more SQL statements than their budget")
+                    .tags("uri", uri, "method", method)
+                    .register(registry)
+                    .increment();
+            if (budget.isFailOnExceed()) {
+                throw new QueryBudgetExceededException(message);
+            }
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package com.example.demo;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Review {
 
     @Id
@@ -25,11 +32,26 @@ public class Review {
     private double rating;
     private String comment;
 
+    // 授業名・教員名を小文字にした DB の生成列（検索・絞り込みで索引を使うため。値は DB が入れる）
+    @Column(insertable = false, updatable = false)
+    private String courseNameLower;
+
+    @Column(insertable = false, updatable = false)
+    private String teacherNameLower;
+
     @Column
     private LocalDateTime createdAt;
 
-    // ログインユーザーとの紐づけ
-    @ManyToOne
+    // 編集・いいね・コメントのたびに増える番号と、その日時（条件付き GET の ETag・Last-Modified に使う）。
+    // 番号は ReviewRepositoryCustom が SQL で加算する（エンティティの UPDATE で読んだ時の値に戻さないよう updatable = false）
+    @Column(nullable = false, updatable = false)
+    private long revision;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // ログインユーザーとの紐づけ（一覧などで要るときは ReviewRepository の @EntityGraph で一緒に読む）
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -124,6 +146,21 @@ public class Review {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        updatedAt = createdAt;
+    }
+
+    // 更新番号は ReviewService が ReviewRepositoryCustom.touch で SQL で進める
+    @PreUpdate
+    private void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
     }
     // 既存フィールドの下あたりに追加
     private String imagePath;
@@ -135,10 +172,32 @@ public class Review {
     public void setImagePath(String imagePath) {
         this.imagePath = imagePath;
     }
+
+    // 画像の縮小版（ImageProcessingService が非同期で作る。できるまでは null）
+    private String displayPath;
+    private String thumbnailPath;
+
+    public String getDisplayPath() {
+        return displayPath;
+    }
+
+    public void setDisplayPath(String displayPath) {
+        this.displayPath = displayPath;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public void setThumbnailPath(String thumbnailPath) {
+        this.thumbnailPath = thumbnailPath;
+    }
+    // いいねは ReviewRepositoryCustom.incrementLikes が SQL で加算する。編集の UPDATE で
+    // 読んだ時の値を書き戻して、その間のいいねを消さないよう updatable = false
+    @Column(updatable = false)
     private int likes;
 
     public int getLikes() { return likes; }
     public void setLikes(int likes) { this.likes = likes; }
-    public void incrementLikes() { this.likes++; }
 
 }
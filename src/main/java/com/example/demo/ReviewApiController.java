@@ -1,53 +1,131 @@
 package com.example.demo;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Locale;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/reviews")
 public class ReviewApiController {
 
+    private static final Duration SUGGEST_MAX_AGE = Duration.ofHours(1);
+
     private final ReviewService service;
+    private final ReviewExportService exportService;
+    private final ReviewImportService importService;
     private final UserRepository userRepository;
 
-    public ReviewApiController(ReviewService service, UserRepository userRepository) {
+    public ReviewApiController(ReviewService service, ReviewExportService exportService,
+                               ReviewImportService importService, UserRepository userRepository) {
         this.service = service;
+        this.exportService = exportService;
+        this.importService = importService;
         this.userRepository = userRepository;
     }
 
-    // 全件取得
+    // 一覧取得（キーセットページング。レスポンスの nextCursor を cursor に渡すと続きを返す）
+    // エンティティではなく ReviewView を返す（投稿者のパスワードなどを出さない）
     @GetMapping
-    public List<Review> list() {
-        return service.getAll();
+    public ReviewService.ReviewPage<ReviewView> list(
+            @RequestParam(name = "keyword", required = false) String keyword,
+            @RequestParam(name = "target", defaultValue = "all") String target,
+            @RequestParam(name = "sort", defaultValue = "recent") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + ReviewService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(name = "university", required = false) String university,
+            @RequestParam(name = "testMethod", required = false) String testMethod,
+            @RequestParam(name = "attendanceMethod", required = false) String attendanceMethod,
+            @RequestParam(name = "star", required = false) String star) {
+        return service.searchViews(keyword == null ? null : keyword.trim(), target, sort, cursor, size,
+                ReviewFacet.filters(university, testMethod, attendanceMethod, star));
+    }
+
+    // 全件エクスポート（format=ndjson|csv。管理者だけ）。DB から読みながらチャンク転送で流す
+    // （MySQL で件数によらずメモリが一定になるのは、接続に useCursorFetch=true が付いているとき。application-prod.properties）
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        String normalizedFormat = format.toLowerCase(Locale.ROOT);
+        ReviewExportService.Format exportFormat;
+        MediaType contentType;
+        switch (normalizedFormat) {
+            case "ndjson" -> {
+                exportFormat = ReviewExportService.Format.NDJSON;
+                contentType = MediaType.APPLICATION_NDJSON;
+            }
+            case "csv" -> {
+                exportFormat = ReviewExportService.Format.CSV;
+                contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format は ndjson か csv を指定してください。");
+        }
+
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("reviews." + normalizedFormat)
+                .build();
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(out -> exportService.export(exportFormat, out));
+    }
+
+    // 一括取り込み（本文は NDJSON。リクエストを読みながら batchSize 件ずつ書き込む。管理者のみ）
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ReviewImportService.ImportReport importReviews(
+            @RequestParam(name = "batchSize", required = false) Integer batchSize,
+            InputStream body) throws IOException {
+        return batchSize == null
+                ? importService.importNdjson(body)
+                : importService.importNdjson(body, batchSize);
     }
 
     // 新規作成
     @PostMapping
-    public Review create(@RequestBody Review review) {
+    @RateLimited
+    public ReviewView create(@RequestBody Review review) {
         service.save(review);
-        return review;
+        return service.getViewById(review.getId());
     }
 
-    // 1件取得
+    // 1件取得（If-None-Match / If-Modified-Since が今の版と同じなら、本体を読まずに 304）
     @GetMapping("/{id}")
-    public Review get(@PathVariable Integer id) {
-        return service.getById(id);
+    public ReviewView get(@PathVariable Integer id, NativeWebRequest request) {
+        ReviewRepository.ReviewStamp stamp = service.getStamp(id);
+        if (stamp != null && ConditionalRequests.checkNotModified(request,
+                ConditionalRequests.etag("api-review", id, stamp.getRevision()), stamp.getUpdatedAt())) {
+            return null;
+        }
+        return service.getViewById(id);
     }
 
+    // 候補はデプロイごとに固定なので、ブラウザにキャッシュさせる
     @GetMapping("/universities/suggest")
-    public List<String> suggestUniversities(@RequestParam(name = "q", required = false) String query) {
-        return service.suggestUniversities(query);
+    public ResponseEntity<List<String>> suggestUniversities(@RequestParam(name = "q", required = false) String query) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(SUGGEST_MAX_AGE).cachePrivate())
+                .body(service.suggestUniversities(query));
     }
 
     // 削除
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Integer id) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         Review review = service.getById(id);
         if (review.getUser() == null || !review.getUser().getId().equals(current.getId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "自分の投稿だけ削除できます。");
@@ -55,10 +133,14 @@ public class ReviewApiController {
         service.deleteById(id);
     }
 
-    private User getCurrentUser() {
+    private LoginUser getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        String email = auth.getName();
+        if (auth != null && auth.getPrincipal() instanceof LoginUser loginUser) {
+            return loginUser;
+        }
+        String email = auth == null ? null : auth.getName();
         return userRepository.findByEmail(email)
+                .map(LoginUser::of)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "ログインが必要です。"));
     }
 }
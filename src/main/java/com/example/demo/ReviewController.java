@@ -1,40 +1,61 @@
 package com.example.demo;
 
 import java.util.List;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.multipart.MultipartFile;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.io.IOException;
-import java.util.UUID;
 
 
 @Controller
 public class ReviewController {
 
+    private static final Logger log = LoggerFactory.getLogger(ReviewController.class);
+
+    // 検索結果カードに表示するコメント件数
+    private static final int COMMENT_PREVIEW_LIMIT = 5;
+    // 詳細画面の 1 ページに表示するコメントスレッド数
+    private static final int COMMENT_THREADS_PER_PAGE = 20;
+
     private final ReviewService service;
     private final UserRepository userRepository;
+    private final UserEntityCache userCache;
+    private final ImageProcessingService imageProcessing;
 
-    public ReviewController(ReviewService service, UserRepository userRepository) {
+    public ReviewController(ReviewService service, UserRepository userRepository, UserEntityCache userCache,
+                            ImageProcessingService imageProcessing) {
         this.service = service;
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.imageProcessing = imageProcessing;
     }
 
-    // ▼ 追加：現在ログイン中の User を取得するメソッド
-    private User getCurrentUser() {
+    // ▼ 現在ログイン中のユーザー（ログイン時に読んだ内容をプリンシパルから取る）
+    private LoginUser getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof LoginUser loginUser) {
+            return loginUser;
+        }
+        // LoginUser 導入前のセッションなどはメールアドレスから引き直す
         String email = auth.getName(); // username = email
         return userRepository.findByEmail(email)
+                .map(LoginUser::of)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
     }
 
+    // 投稿者として紐づけるなど、User エンティティそのものが要るとき
+    private User getCurrentUserEntity() {
+        return userCache.get(getCurrentUser().getId());
+    }
+
     // 最初の検索画面（検索欄のみ）
     @GetMapping("/reviews")
     public String showSearchHome() {
@@ -47,31 +68,56 @@ public class ReviewController {
             @RequestParam(name = "keyword", required = false) String keyword,
             @RequestParam(name = "target", defaultValue = "all") String target,
             @RequestParam(name = "sort", defaultValue = "recent") String sort,
-            Model model
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + ReviewService.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(name = "university", required = false) String university,
+            @RequestParam(name = "testMethod", required = false) String testMethod,
+            @RequestParam(name = "attendanceMethod", required = false) String attendanceMethod,
+            @RequestParam(name = "star", required = false) String star,
+            Model model,
+            NativeWebRequest request
     ) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         String trimmedKeyword = keyword == null ? "" : keyword.trim();
         if (trimmedKeyword.isEmpty()) {
             return "redirect:/reviews";
         }
 
-        boolean hasSearched = !trimmedKeyword.isEmpty();
-        List<Review> reviews = hasSearched ? service.search(trimmedKeyword, target, sort) : List.of();
-        Map<Integer, List<Comment>> reviewCommentsMap = new LinkedHashMap<>();
-        if (hasSearched) {
-            for (Review review : reviews) {
-                List<Comment> comments = service.getComments(review);
-                reviewCommentsMap.put(review.getId(), comments.stream().limit(5).toList());
+        // このインスタンスの検索インデックス・評価の集計が変わっていなければ、検索もコメントの取得も描画もせずに 304
+        // （構築中で DB にフォールバックしているあいだは ETag を付けない）
+        Map<ReviewFacet, String> filters = ReviewFacet.filters(university, testMethod, attendanceMethod, star);
+        String version = service.getSearchResultsVersion();
+        if (version != null) {
+            String etag = ConditionalRequests.etag("search", version,
+                    trimmedKeyword, target, sort, cursor, size, filters, current.getId());
+            if (ConditionalRequests.checkNotModified(request, etag, null)) {
+                return null;
             }
         }
 
-        if (hasSearched && ("course".equals(target) || "teacher".equals(target))) {
-            ReviewService.RatingSummary ratingSummary = service.buildRatingSummary(reviews);
+        boolean hasSearched = !trimmedKeyword.isEmpty();
+        ReviewService.ReviewPage<Review> page = service.search(trimmedKeyword, target, sort, cursor, size, filters);
+        List<Review> reviews = page.getItems();
+        Map<Integer, List<Comment>> reviewCommentsMap = hasSearched
+                ? service.getCommentPreviews(reviews, COMMENT_PREVIEW_LIMIT)
+                : Map.of();
+
+        // 評価サマリーは先頭ページでだけ集計する（2ページ目以降は一覧だけ）
+        boolean firstPage = cursor == null || cursor.isBlank();
+        if (hasSearched && firstPage && ("course".equals(target) || "teacher".equals(target))) {
+            ReviewService.RatingSummary ratingSummary = service.getRatingSummary(trimmedKeyword, target);
             model.addAttribute("ratingSummary", ratingSummary);
             model.addAttribute("summaryTitle", ("course".equals(target) ? "授業名" : "教員名") + "「" + trimmedKeyword + "」の評価");
         }
 
         model.addAttribute("reviews", reviews);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("facets", page.getFacets());
+        model.addAttribute("university", filters.get(ReviewFacet.UNIVERSITY));
+        model.addAttribute("testMethod", filters.get(ReviewFacet.TEST_METHOD));
+        model.addAttribute("attendanceMethod", filters.get(ReviewFacet.ATTENDANCE_METHOD));
+        model.addAttribute("star", filters.get(ReviewFacet.STAR));
+        model.addAttribute("size", size);
         model.addAttribute("reviewCommentsMap", reviewCommentsMap);
         model.addAttribute("keyword", trimmedKeyword);
         model.addAttribute("target", target);
@@ -92,6 +138,7 @@ public class ReviewController {
 
     // 投稿処理
     @PostMapping("/reviews")
+    @RateLimited
     public String addReview(
             @RequestParam String courseName,
             @RequestParam String teacherName,
@@ -101,32 +148,35 @@ public class ReviewController {
             @RequestParam String comment,
             @RequestParam(name = "imageFile", required = false) MultipartFile imageFile
     ) {
-        User user = getCurrentUser();
+        User user = getCurrentUserEntity();
 
         Review review = new Review(courseName, teacherName, user.getUniversity(),
                 testMethod, attendanceMethod,
                 normalizeRating(rating), comment);
         review.setUser(user);
 
-        // ★ 画像があれば保存。エラーが出てもレビューは保存する。
+        // ★ 画像があれば staging に置いて、縮小版の作成はバックグラウンドに任せる。
+        //   エラーが出てもレビューは保存する。
+        Path stagedImage = null;
         if (imageFile != null && !imageFile.isEmpty()) {
             try {
-                String imagePath = saveImage(imageFile);
-                review.setImagePath(imagePath);
+                stagedImage = imageProcessing.stage(imageFile);
             } catch (IOException e) {
-                e.printStackTrace(); // とりあえずログだけ出して無視
+                log.warn("Failed to stage image for a new review; saving it without the image", e);
             }
         }
 
         service.addReview(review);
+        imageProcessing.submit(review.getId(), stagedImage);
         return "redirect:/reviews";
     }
 
     
     // クラスの中に追記
     @PostMapping("/reviews/{id}/delete")
+    @RateLimited
     public String deleteReview(@PathVariable Integer id) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         Review review = service.getById(id);
 
         if (!isOwner(review, current)) {
@@ -139,7 +189,7 @@ public class ReviewController {
     // 編集フォーム表示
     @GetMapping("/reviews/{id}/edit")
     public String showEditForm(@PathVariable Integer id, Model model) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         Review review = service.getById(id);
         if (!isOwner(review, current)) {
             return "redirect:/reviews?forbidden";
@@ -150,6 +200,7 @@ public class ReviewController {
 
     // 編集内容の保存
     @PostMapping("/reviews/{id}/edit")
+    @RateLimited
     public String updateReview(
             @PathVariable Integer id,
             @RequestParam String courseName,
@@ -161,7 +212,7 @@ public class ReviewController {
             @RequestParam(name = "imageFile", required = false) MultipartFile imageFile
     ) throws IOException {
 
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         Review review = service.getById(id);
 
         if (!isOwner(review, current)) {
@@ -176,13 +227,11 @@ public class ReviewController {
         review.setRating(normalizeRating(rating));
         review.setComment(comment);
 
-        // 画像が送られてきたときだけ更新
-        String newImagePath = saveImage(imageFile);
-        if (newImagePath != null) {
-            review.setImagePath(newImagePath);
-        }
+        // 画像が送られてきたときだけ更新（処理が終わるまでは前の画像のまま）
+        Path stagedImage = imageProcessing.stage(imageFile);
 
         service.save(review);
+        imageProcessing.submit(review.getId(), stagedImage);
         return "redirect:/reviews";
     }
 
@@ -195,66 +244,47 @@ public class ReviewController {
     }
     @GetMapping("/me")
     public String myPage(Model model) {
-        User user = getCurrentUser();
+        LoginUser user = getCurrentUser();
         model.addAttribute("user", user);
-        model.addAttribute("reviews", service.getByUser(user));
+        model.addAttribute("reviews", service.getByUser(userCache.get(user.getId())));
         return "me";
     }
-    private String saveImage(MultipartFile imageFile) throws IOException {
-        // ファイルが空なら何もしない
-        if (imageFile == null || imageFile.isEmpty()) {
-            return null;
-        }
-
-        // プロジェクト直下に uploads フォルダを作る
-        Path uploadDir = Paths.get("uploads").toAbsolutePath().normalize();
-        Files.createDirectories(uploadDir);
-
-        // 元ファイル名から拡張子だけもらう
-        String originalFilename = imageFile.getOriginalFilename();
-        String ext = "";
-        if (originalFilename != null) {
-            int dot = originalFilename.lastIndexOf(".");
-            if (dot != -1) {
-                ext = originalFilename.substring(dot); // .png, .jpg など
-            }
-        }
-
-        // ランダムなファイル名を作成
-        String filename = UUID.randomUUID().toString() + ext;
-
-        // 保存先パス
-        Path target = uploadDir.resolve(filename);
-
-        // ファイルを保存
-        imageFile.transferTo(target.toFile());
-
-        // ブラウザからアクセスするときのパスを返す
-        return "/uploads/" + filename;
-    }
 
     @PostMapping("/reviews/{id}/like")
+    @RateLimited
     public String likeReview(@PathVariable Integer id) {
         service.like(id);
         return "redirect:/reviews";
     }
     // レビュー詳細＆コメント一覧
     @GetMapping("/reviews/{id}")
-    public String showDetail(@PathVariable Integer id, Model model) {
+    public String showDetail(@PathVariable Integer id,
+                             @RequestParam(name = "page", defaultValue = "0") int page,
+                             Model model,
+                             NativeWebRequest request) {
+        // 変わっていなければレビューもコメントも読まずに 304
+        ReviewRepository.ReviewStamp stamp = service.getStamp(id);
+        if (stamp != null && ConditionalRequests.checkNotModified(request,
+                ConditionalRequests.etag("review", id, stamp.getRevision(), getCurrentUser().getId(), page),
+                stamp.getUpdatedAt())) {
+            return null;
+        }
+
         Review review = service.getById(id);
         model.addAttribute("review", review);
-        model.addAttribute("comments", service.getComments(review));
+        model.addAttribute("commentPage", service.getCommentThreads(id, page, COMMENT_THREADS_PER_PAGE));
         return "review-detail";
     }
 
     // コメント投稿
     @PostMapping("/reviews/{id}/comments")
+    @RateLimited
     public String addComment(@PathVariable Integer id,
                              @RequestParam String content,
                              @RequestParam String university,
                              @RequestParam String faculty,
                              @RequestParam String department) {
-        User user = getCurrentUser();
+        User user = getCurrentUserEntity();
         Review review = service.getById(id);
         service.addComment(review, user, content, university, faculty, department);
         return "redirect:/reviews/" + id;
@@ -262,13 +292,14 @@ public class ReviewController {
 
     // コメントへの返信
     @PostMapping("/reviews/{id}/comments/{commentId}/replies")
+    @RateLimited
     public String addReply(@PathVariable Integer id,
                            @PathVariable Long commentId,
                            @RequestParam String content,
                            @RequestParam String university,
                            @RequestParam String faculty,
                            @RequestParam String department) {
-        User user = getCurrentUser();
+        User user = getCurrentUserEntity();
         Review review = service.getById(id);
         Comment parent = service.getCommentById(commentId);
         if (!parent.getReview().getId().equals(review.getId())) {
@@ -279,23 +310,23 @@ public class ReviewController {
     }
     @GetMapping("/reviews/by-course")
     public String byCourse(@RequestParam String name, Model model) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         model.addAttribute("reviews", service.getByCourseName(name));
         model.addAttribute("filterTitle", "授業名: " + name);
         model.addAttribute("currentUserId", current.getId());
-        return "reviews-filter";
+        return "review-filter";
     }
 
     @GetMapping("/reviews/by-teacher")
     public String byTeacher(@RequestParam String name, Model model) {
-        User current = getCurrentUser();
+        LoginUser current = getCurrentUser();
         model.addAttribute("reviews", service.getByTeacherName(name));
         model.addAttribute("filterTitle", "教員: " + name);
         model.addAttribute("currentUserId", current.getId());
-        return "reviews-filter";
+        return "review-filter";
     }
 
-    private boolean isOwner(Review review, User current) {
+    private boolean isOwner(Review review, LoginUser current) {
         return review != null
                 && review.getUser() != null
                 && review.getUser().getId() != null
@@ -0,0 +1,65 @@
+package com.example.demo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 検索・一覧のキーセットページング用カーソル。
+ * 直前のページ末尾の「並び替えキーの値」と id を URL セーフな文字列にして次ページへ引き継ぐ。
+ */
+public final class ReviewCursor {
+
+    private final double value;
+    private final int id;
+
+    public ReviewCursor(double value, int id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // 並び順に応じて、レビューの末尾位置からカーソルを作る
+    public static ReviewCursor of(Review review, String sortKey) {
+        return of(review.getId(), review.getRating(), review.getLikes(), sortKey);
+    }
+
+    public static ReviewCursor of(int id, double rating, int likes, String sortKey) {
+        double value = switch (sortKey) {
+            case "rating" -> rating;
+            case "likes"  -> likes;
+            default       -> id;
+        };
+        return new ReviewCursor(value, id);
+    }
+
+    public String encode() {
+        String raw = value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 不正なトークンは先頭ページ扱い（null）にする
+    public static ReviewCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf(':');
+            if (sep <= 0) {
+                return null;
+            }
+            return new ReviewCursor(Double.parseDouble(raw.substring(0, sep)),
+                    Integer.parseInt(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * レビュー全件のエクスポート（NDJSON / CSV）。
+ * DB カーソルから 1 行ずつ読んではすぐ書き出すので、件数が増えてもメモリ使用量は一定。
+ */
+@Service
+public class ReviewExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String[] CSV_HEADER = {
+            "id", "courseName", "teacherName", "university", "testMethod", "attendanceMethod",
+            "rating", "likes", "comment", "createdAt", "authorNickname", "authorUniversity"};
+
+    private final ReviewRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public ReviewExportService(ReviewRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    // Stream はトランザクション（＝接続）が開いている間しか読めないので、書き終わるまでここで持つ
+    @Transactional(readOnly = true)
+    public void export(Format format, OutputStream out) throws IOException {
+        try (Stream<ReviewView> views = repository.streamAllViews()) {
+            if (format == Format.CSV) {
+                writeCsv(views.iterator(), out);
+            } else {
+                writeNdjson(views.iterator(), out);
+            }
+        }
+    }
+
+    // 1 行 1 JSON（各行の末尾に改行）。フラッシュはサーバーのバッファが一杯になったときに任せる（チャンク転送）
+    private void writeNdjson(Iterator<ReviewView> views, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null); // 値の区切りは自分で書く改行だけにする
+            while (views.hasNext()) {
+                writer.writeValue(generator, views.next());
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeCsv(Iterator<ReviewView> views, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Excel で開いても文字化けしないよう BOM を付ける
+        writer.write('\uFEFF');
+        writeCsvRow(writer, (Object[]) CSV_HEADER);
+        while (views.hasNext()) {
+            ReviewView v = views.next();
+            ReviewView.Author author = v.getAuthor();
+            writeCsvRow(writer, v.getId(), v.getCourseName(), v.getTeacherName(), v.getUniversity(),
+                    v.getTestMethod(), v.getAttendanceMethod(), v.getRating(), v.getLikes(), v.getComment(),
+                    v.getCreatedAt(),
+                    author == null ? null : author.getNickname(),
+                    author == null ? null : author.getUniversity());
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    // カンマ・改行・ダブルクォートを含む値はダブルクォートで囲み、中の " は "" にする
+    static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 検索結果を絞り込むファセット（大学・テスト方式・出席の取り方・★）。
+ * 件数の集計と絞り込みは検索インデックス（ReviewSearchIndex）が 1 回の走査で行う
+ * （インデックスが無いときは、値の組み合わせごとの件数を DB で数えて同じように集計する）。
+ */
+public enum ReviewFacet {
+
+    UNIVERSITY("university"),
+    TEST_METHOD("testMethod"),
+    ATTENDANCE_METHOD("attendanceMethod"),
+    STAR("star");
+
+    // リクエストパラメータ・JSON での名前
+    private final String param;
+
+    ReviewFacet(String param) {
+        this.param = param;
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    // レビューのこのファセットの値（空なら null。★は評価を四捨五入した 1〜5）
+    String valueOf(String university, String testMethod, String attendanceMethod, double rating) {
+        String value = switch (this) {
+            case UNIVERSITY -> university;
+            case TEST_METHOD -> testMethod;
+            case ATTENDANCE_METHOD -> attendanceMethod;
+            case STAR -> String.valueOf(star(rating));
+        };
+        return normalize(value);
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    static int star(double rating) {
+        return Math.max(1, Math.min(5, (int) Math.round(rating)));
+    }
+
+    // パラメータの値から、空でない絞り込みだけを集める
+    public static Map<ReviewFacet, String> filters(String university, String testMethod, String attendanceMethod,
+                                                   String star) {
+        Map<ReviewFacet, String> filters = new EnumMap<>(ReviewFacet.class);
+        put(filters, UNIVERSITY, university);
+        put(filters, TEST_METHOD, testMethod);
+        put(filters, ATTENDANCE_METHOD, attendanceMethod);
+        put(filters, STAR, star);
+        return filters;
+    }
+
+    private static void put(Map<ReviewFacet, String> filters, ReviewFacet facet, String value) {
+        String normalized = normalize(value);
+        if (normalized != null) {
+            filters.put(facet, normalized);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * コマンドラインからの一括取り込み。
+ * 例: java -jar app.jar --spring.main.web-application-type=none --app.import.file=reviews.ndjson
+ * 取り込みが終わったらアプリを終了する（失敗した行があれば終了コード 1）。
+ */
+@Component
+@ConditionalOnProperty("app.import.file")
+public class ReviewImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewImportRunner.class);
+
+    private final ReviewImportService importService;
+    private final ConfigurableApplicationContext context;
+    private final Path file;
+    private final boolean exitWhenDone;
+
+    public ReviewImportRunner(ReviewImportService importService,
+                              ConfigurableApplicationContext context,
+                              @Value("${app.import.file}") String file,
+                              @Value("${app.import.exit:true}") boolean exitWhenDone) {
+        this.importService = importService;
+        this.context = context;
+        this.file = Path.of(file);
+        this.exitWhenDone = exitWhenDone;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        ReviewImportService.ImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = importService.importNdjson(in);
+        }
+        for (ReviewImportService.ImportError error : report.getErrors()) {
+            log.warn("{}:{}: {}", file, error.getLine(), error.getMessage());
+        }
+
+        if (exitWhenDone) {
+            int exitCode = report.getFailed() == 0 ? 0 : 1;
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 他のサービスから持ってきたレビューの一括取り込み。
+ * 入力は 1 行 1 レビューの NDJSON（/api/reviews/export の出力もそのまま読める）。
+ * IDENTITY 採番だと Hibernate は INSERT をまとめられないので、JDBC のバッチで batchSize 件ずつ入れ、
+ * バッチごとにコミットする。バッチが DB に断られたときは、そのバッチだけ 1 件ずつ入れ直して、
+ * 入らなかった行だけをエラーとして報告する。
+ */
+@Service
+public class ReviewImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewImportService.class);
+
+    // レポートに載せるエラーの上限（それ以上は件数だけ数える）
+    private static final int MAX_REPORTED_ERRORS = 100;
+    // review の文字列カラム（varchar(255)）の長さ
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    private static final String INSERT_SQL = "insert into review"
+            + " (course_name, teacher_name, university, test_method, attendance_method, rating, comment, created_at, likes, user_id)"
+            + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ReviewService reviewService;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader rowReader;
+    private final int defaultBatchSize;
+
+    public ReviewImportService(ReviewService reviewService,
+                               UserRepository userRepository,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${app.import.batch-size:1000}") int defaultBatchSize) {
+        this.reviewService = reviewService;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rowReader = objectMapper.readerFor(ImportRow.class);
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    public ImportReport importNdjson(InputStream in) throws IOException {
+        return importNdjson(in, defaultBatchSize);
+    }
+
+    // 1 行ずつ読んで検証し、batchSize 件たまったら書き込む（入力全体はメモリに載せない）
+    public ImportReport importNdjson(InputStream in, int batchSize) throws IOException {
+        int size = Math.max(1, batchSize);
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<PendingRow> batch = new ArrayList<>(size);
+        Map<Long, Boolean> knownUsers = new HashMap<>();
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.total++;
+
+            Object[] values;
+            try {
+                values = toValues(rowReader.readValue(line), knownUsers);
+            } catch (JsonProcessingException e) {
+                report.fail(lineNumber, "JSON として読めません: " + e.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException e) {
+                report.fail(lineNumber, e.getMessage());
+                continue;
+            }
+
+            batch.add(new PendingRow(lineNumber, values));
+            if (batch.size() >= size) {
+                flush(batch, report);
+            }
+        }
+        flush(batch, report);
+
+        // JDBC で直接入れたので、このインスタンスの検索インデックスと評価の集計を作り直す。
+        // 他のインスタンスには、入れた行の updated_at（DB の既定値＝取り込んだ日時）から
+        // ReviewSearchDataRefresher が refresh-interval のうちに取り込む
+        if (report.imported > 0) {
+            reviewService.rebuildSearchData();
+        }
+        report.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Imported {} of {} reviews in {} ms ({} failed, {} batches)",
+                report.imported, report.total, report.elapsedMillis, report.failed, report.batches);
+        return report;
+    }
+
+    private void flush(List<PendingRow> batch, ImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        report.batches++;
+        List<Object[]> values = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            values.add(row.values);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, values));
+            report.imported += batch.size();
+        } catch (DataAccessException e) {
+            // バッチはまるごと巻き戻るので、1 件ずつ入れ直して断られた行だけを報告する
+            log.debug("Batch starting at line {} failed; retrying row by row", batch.get(0).line, e);
+            insertOneByOne(batch, report);
+        }
+        batch.clear();
+    }
+
+    private void insertOneByOne(List<PendingRow> batch, ImportReport report) {
+        int inserted = 0;
+        for (PendingRow row : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(INSERT_SQL, row.values));
+                inserted++;
+            } catch (DataAccessException e) {
+                report.fail(row.line, "書き込めませんでした: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        report.imported += inserted;
+    }
+
+    // 必須項目・評価の範囲（フォームからの投稿と同じく 1〜5）・文字列の長さ・投稿者を確認する
+    private Object[] toValues(ImportRow row, Map<Long, Boolean> knownUsers) {
+        if (row == null) {
+            throw new IllegalArgumentException("空の行です");
+        }
+        if (isBlank(row.courseName) || isBlank(row.teacherName)) {
+            throw new IllegalArgumentException("courseName と teacherName は必須です");
+        }
+        if (row.rating == null || row.rating < 1 || row.rating > 5) {
+            throw new IllegalArgumentException("rating は 1〜5 で指定してください");
+        }
+        String courseName = row.courseName.trim();
+        String teacherName = row.teacherName.trim();
+        checkLength("courseName", courseName);
+        checkLength("teacherName", teacherName);
+        checkLength("university", row.university);
+        checkLength("testMethod", row.testMethod);
+        checkLength("attendanceMethod", row.attendanceMethod);
+        checkLength("comment", row.comment);
+
+        // 投稿者（エクスポートの author.id）はこの DB にいるユーザーだけ紐づける。省けば投稿者なしで入る
+        Long userId = row.author != null ? row.author.id : null;
+        if (userId != null && !knownUsers.computeIfAbsent(userId, userRepository::existsById)) {
+            throw new IllegalArgumentException("author.id=" + userId
+                    + " のユーザーがいません（投稿者なしで取り込むなら author を省いてください）");
+        }
+
+        LocalDateTime createdAt = row.createdAt != null ? row.createdAt : LocalDateTime.now();
+        return new Object[] {
+                courseName, teacherName, row.university, row.testMethod, row.attendanceMethod,
+                row.rating, row.comment, Timestamp.valueOf(createdAt), row.likes != null ? Math.max(0, row.likes) : 0,
+                userId};
+    }
+
+    private static void checkLength(String field, String value) {
+        if (value != null && value.codePointCount(0, value.length()) > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(field + " は " + MAX_TEXT_LENGTH + " 文字以内にしてください");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // 入力の 1 行（知らない項目は無視する）
+    static class ImportRow {
+        public String courseName;
+        public String teacherName;
+        public String university;
+        public String testMethod;
+        public String attendanceMethod;
+        public Double rating;
+        public String comment;
+        public LocalDateTime createdAt;
+        public Integer likes;
+        public ImportAuthor author;
+    }
+
+    static class ImportAuthor {
+        public Long id;
+    }
+
+    // 検証済みでまだ書き込んでいない行
+    private static class PendingRow {
+        private final int line;
+        private final Object[] values;
+
+        private PendingRow(int line, Object[] values) {
+            this.line = line;
+            this.values = values;
+        }
+    }
+
+    // 取り込み結果（API ではこのまま JSON で返す）
+    public static class ImportReport {
+        private int total;
+        private int imported;
+        private int failed;
+        private int batches;
+        private long elapsedMillis;
+        private final List<ImportError> errors = new ArrayList<>();
+
+        private void fail(int line, String message) {
+            failed++;
+            addError(line, message);
+        }
+
+        private void addError(int line, String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportError(line, message));
+            }
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public int getBatches() {
+            return batches;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public List<ImportError> getErrors() {
+            return errors;
+        }
+    }
+
+    public static class ImportError {
+        private final int line;
+        private final String message;
+
+        public ImportError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        // 入力の行番号
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -1,44 +1,227 @@
 package com.example.demo;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface ReviewRepository extends JpaRepository<Review, Integer> {
+public interface ReviewRepository extends JpaRepository<Review, Integer>, ReviewRepositoryCustom {
 
-    // 平均値計算などで使う（ソートなし）
-    List<Review> findByCourseNameContainingIgnoreCase(String keyword);
+    // 平均値計算などで使う（ソートなし）。
+    // 授業名・教員名は小文字にした生成列（course_name_lower など）で引くので、引数も小文字で渡す
+    List<Review> findByCourseNameLowerContaining(String lowerKeyword);
 
-    // 授業名・教員名の完全一致検索（詳細絞り込み用）
-    List<Review> findByCourseName(String courseName);
-    List<Review> findByTeacherName(String teacherName);
+    // 授業名・教員名の完全一致検索（詳細絞り込み用。大文字小文字も区別する）
+    // 小文字の生成列の索引で候補を絞ってから、元の列と比べる。
+    // 一覧のカードで投稿者を表示するので、投稿者も同じクエリで結合して読む
+    @EntityGraph(attributePaths = "user")
+    @Query("select r from Review r where r.courseNameLower = lower(:courseName) and r.courseName = :courseName")
+    List<Review> findByCourseName(@Param("courseName") String courseName);
 
-    // ▼ 検索＋並び替え用（ソート付き）
-    List<Review> findByCourseNameContainingIgnoreCase(String keyword, Sort sort);
+    @EntityGraph(attributePaths = "user")
+    @Query("select r from Review r where r.teacherNameLower = lower(:teacherName) and r.teacherName = :teacherName")
+    List<Review> findByTeacherName(@Param("teacherName") String teacherName);
 
-    List<Review> findByTeacherNameContainingIgnoreCase(String keyword, Sort sort);
+    // 検索結果のページ用（id で決めたページの分を投稿者ごと読む）
+    @EntityGraph(attributePaths = "user")
+    List<Review> findWithUserByIdIn(Collection<Integer> ids);
 
-    List<Review> findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCase(
-            String courseKeyword,
-            String teacherKeyword,
-            Sort sort
-    );
+    // ▼ 検索＋並び替え用（キーセットページング）
+    //   type に ReviewKey.class を渡すと並び替えキーだけを返す（ページの id を決めてから findWithUserByIdIn などで読む）
+    <T> Window<T> findAllBy(ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByCourseNameLowerContaining(
+            String lowerKeyword, ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    <T> Window<T> findByTeacherNameLowerContaining(
+            String lowerKeyword, ScrollPosition position, Sort sort, Limit limit, Class<T> type);
 
-    List<Review> findByUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
+    <T> Window<T> findByUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
             String reviewUniversityKeyword,
             String userUniversityKeyword,
-            Sort sort
+            ScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type
     );
 
-    List<Review> findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCaseOrUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
+    <T> Window<T> findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCaseOrUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
             String courseKeyword,
             String teacherKeyword,
             String universityKeyword,
             String userUniversityKeyword,
-            Sort sort
+            ScrollPosition position,
+            Sort sort,
+            Limit limit,
+            Class<T> type
     );
 
+    // ページの位置決めに要る列だけ（id と並び替えキー、インデックスが無いときのファセットの絞り込み用の列）
+    interface ReviewKey {
+        Integer getId();
+        double getRating();
+        int getLikes();
+        String getUniversity();
+        String getTestMethod();
+        String getAttendanceMethod();
+    }
+
+    // ▼ JSON API 用（API が返す列だけを読む）
+    @Query("""
+            select new com.example.demo.ReviewView(
+                r.id, r.courseName, r.teacherName, r.university, r.testMethod, r.attendanceMethod,
+                r.rating, r.comment, r.createdAt, r.likes, r.imagePath, r.displayPath, r.thumbnailPath,
+                u.id, u.nickname, u.university)
+            from Review r left join r.user u
+            where r.id in :ids
+            """)
+    List<ReviewView> findViewsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // ▼ エクスポート用（全件を id 順に 1 行ずつ流す。DTO なので読んだ行が永続化コンテキストに溜まらない）
+    //   MySQL では接続の useCursorFetch=true（application-prod.properties で必ず付ける）と合わせて、fetch size ずつサーバーから読む
+    //   付いていないと Connector/J は結果を全部メモリに読んでから返す
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.example.demo.ReviewView(
+                r.id, r.courseName, r.teacherName, r.university, r.testMethod, r.attendanceMethod,
+                r.rating, r.comment, r.createdAt, r.likes, r.imagePath, r.displayPath, r.thumbnailPath,
+                u.id, u.nickname, u.university)
+            from Review r left join r.user u
+            order by r.id
+            """)
+    Stream<ReviewView> streamAllViews();
+
+    // ▼ 評価サマリー用（検索結果全体の評価ごとの件数）
+    //   (course_name_lower, rating, id) の索引だけで集計できるよう、列に関数をかけない
+    @Query("""
+            select r.rating as rating, count(r) as count from Review r
+            where r.courseNameLower like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()}
+            group by r.rating
+            """)
+    List<RatingCount> countRatingsByCourseNameContaining(@Param("keyword") String lowerKeyword);
+
+    @Query("""
+            select r.rating as rating, count(r) as count from Review r
+            where r.teacherNameLower like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()}
+            group by r.rating
+            """)
+    List<RatingCount> countRatingsByTeacherNameContaining(@Param("keyword") String lowerKeyword);
+
+    // ▼ ファセットの件数用（検索インデックスが使えないとき）。検索語に一致するレビューを
+    //   ファセットの値の組み合わせごとに数える（everything なら全件。★は rating から呼び出し側で作る）
+    @Query("""
+            select r.university as university, r.testMethod as testMethod, r.attendanceMethod as attendanceMethod,
+                   r.rating as rating, count(r) as count
+            from Review r left join r.user u
+            where :everything = true
+               or (:course = true
+                   and r.courseNameLower like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()})
+               or (:teacher = true
+                   and r.teacherNameLower like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()})
+               or (:university = true
+                   and (lower(r.university) like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()}
+                        or lower(u.university) like concat('%', :#{escape(#keyword)}, '%') escape :#{escapeCharacter()}))
+            group by r.university, r.testMethod, r.attendanceMethod, r.rating
+            """)
+    List<FacetRow> countFacetValues(@Param("everything") boolean everything, @Param("keyword") String lowerKeyword,
+                                    @Param("course") boolean course, @Param("teacher") boolean teacher,
+                                    @Param("university") boolean university);
+
+    interface FacetRow {
+        String getUniversity();
+        String getTestMethod();
+        String getAttendanceMethod();
+        double getRating();
+        long getCount();
+    }
+
     // マイページ用
+    @EntityGraph(attributePaths = "user")
     List<Review> findByUser(User user);
+
+    // ▼ いいね（読んでから書くと同時クリックで取りこぼすので、DB 側で 1 文で加算する。
+    //   加算は incrementLikes（ReviewRepositoryCustom）、結果の読み直しはこちら）
+    @Query("select r.likes from Review r where r.id = :id")
+    Optional<Integer> findLikesById(@Param("id") Integer id);
+
+    // ▼ 条件付き GET 用（エンティティは読まず、更新番号と日時だけ）
+    @Query("select r.revision as revision, r.updatedAt as updatedAt from Review r where r.id = :id")
+    Optional<ReviewStamp> findStampById(@Param("id") Integer id);
+
+    interface ReviewStamp {
+        long getRevision();
+        LocalDateTime getUpdatedAt();
+    }
+
+    // ▼ 検索インデックス構築用（id のキーセットで少しずつ読む）
+    @Query("""
+            select r.id as id, r.courseName as courseName, r.teacherName as teacherName,
+                   r.university as university, u.university as userUniversity,
+                   r.testMethod as testMethod, r.attendanceMethod as attendanceMethod,
+                   r.rating as rating, r.likes as likes
+            from Review r left join r.user u
+            where r.id > :afterId
+            order by r.id asc
+            """)
+    List<IndexRow> findIndexRowsAfter(@Param("afterId") int afterId, Limit limit);
+
+    // 全件を id 順に batchSize 件ずつ読んで action に渡す（メモリ上の索引・集計の構築用）
+    default void forEachIndexRow(int batchSize, Consumer<IndexRow> action) {
+        int afterId = 0;
+        while (true) {
+            List<IndexRow> rows = findIndexRowsAfter(afterId, Limit.of(batchSize));
+            rows.forEach(action);
+            if (rows.size() < batchSize) {
+                return;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+    }
+
+    // ▼ 他のインスタンスでの書き込みの取り込み用（since 以降に更新された行を id のキーセットで少しずつ読む）
+    @Query("""
+            select r.id as id, r.courseName as courseName, r.teacherName as teacherName,
+                   r.university as university, u.university as userUniversity,
+                   r.testMethod as testMethod, r.attendanceMethod as attendanceMethod,
+                   r.rating as rating, r.likes as likes
+            from Review r left join r.user u
+            where r.updatedAt >= :since and r.id > :afterId
+            order by r.id asc
+            """)
+    List<IndexRow> findIndexRowsUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") int afterId,
+                                             Limit limit);
+
+    interface RatingCount {
+        double getRating();
+        long getCount();
+    }
+
+    interface IndexRow {
+        int getId();
+        String getCourseName();
+        String getTeacherName();
+        String getUniversity();
+        String getUserUniversity();
+        String getTestMethod();
+        String getAttendanceMethod();
+        double getRating();
+        int getLikes();
+    }
 }
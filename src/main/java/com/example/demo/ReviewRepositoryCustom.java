@@ -0,0 +1,11 @@
+package com.example.demo;
+
+// ReviewRepository のうち、JPA の派生クエリや @Query では書けないもの（実装は ReviewRepositoryCustomImpl）
+public interface ReviewRepositoryCustom {
+
+    // likes を DB 側で 1 加算する（更新番号も進める）。更新した行数を返す
+    int incrementLikes(Integer id);
+
+    // コメントが付いたときなど、行の内容は変えずに更新番号と更新日時だけ進める。更新した行数を返す
+    int touch(Integer id);
+}
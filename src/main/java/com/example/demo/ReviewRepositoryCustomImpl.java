@@ -0,0 +1,57 @@
+package com.example.demo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReviewRepositoryCustomImpl implements ReviewRepositoryCustom {
+
+    // どのエンティティのテーブルとも一致しない名前。更新文の影響範囲をこれだけにしておくと、
+    // Hibernate が第 2 レベルキャッシュの Review 全体を捨てずに済む
+    private static final String ROW_UPDATE_QUERY_SPACE = "review_row_update";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int incrementLikes(Integer id) {
+        return updateRow("""
+                update review set likes = likes + 1, revision = revision + 1, updated_at = :now
+                where id = :id
+                """, id);
+    }
+
+    @Override
+    public int touch(Integer id) {
+        return updateRow("update review set revision = revision + 1, updated_at = :now where id = :id", id);
+    }
+
+    private int updateRow(String sql, Integer id) {
+        int updated = entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(ROW_UPDATE_QUERY_SPACE)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", id)
+                .executeUpdate();
+
+        // その代わり、キャッシュ上のこのレビューだけは自分で捨てる。コミット前に他のリクエストが
+        // 古い値をキャッシュに入れ直すことがあるので、コミット後にももう一度捨てる
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+        return updated;
+    }
+
+    private void evict(Integer id) {
+        entityManager.getEntityManagerFactory().getCache().evict(Review.class, id);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 他のインスタンス（Cloud Run の別のコンテナ・一括取り込み）での書き込みを、このインスタンスの
+ * 検索インデックスと評価の集計に取り込む。どちらもインスタンスごとにメモリ上に持っているので、自分の書き込みしか見えないため。
+ * <ul>
+ *   <li>追加・編集・いいね・コメント: refresh-interval ごとに、前回から updated_at が進んだ行だけを読み直す。
+ *       インスタンス間の時計のずれ・レプリカの遅れ・コミットまでの遅れの分だけ、前回より refresh-overlap 前から読む
+ *       （同じ行を何度反映しても結果は同じ）</li>
+ *   <li>削除: updated_at では分からないので、rebuild-interval ごとに全件を読み直す。
+ *       それまでは件数に残るが、一覧を読むときに DB に無いものは飛ばすので、検索結果には出ない</li>
+ * </ul>
+ */
+@Component
+public class ReviewSearchDataRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewSearchDataRefresher.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ReviewRepository repository;
+    private final ReviewSearchIndex searchIndex;
+    private final RatingAggregateStore ratingAggregates;
+    private final Duration overlap;
+
+    // 起動時の全件構築より前から数え始める（構築中の書き込みも次の取り込みで拾う）
+    private volatile LocalDateTime checkedAt = LocalDateTime.now();
+
+    public ReviewSearchDataRefresher(ReviewRepository repository,
+                                     ReviewSearchIndex searchIndex,
+                                     RatingAggregateStore ratingAggregates,
+                                     @Value("${app.search.refresh-overlap:PT1M}") Duration overlap) {
+        this.repository = repository;
+        this.searchIndex = searchIndex;
+        this.ratingAggregates = ratingAggregates;
+        this.overlap = overlap;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval:PT30S}",
+            initialDelayString = "${app.search.refresh-interval:PT30S}")
+    public synchronized void refreshChanged() {
+        if (!searchIndex.isReady() && !ratingAggregates.isReady()) {
+            return; // 構築中（構築が終われば全件が入っている）
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDateTime since = checkedAt.minus(overlap);
+
+        int refreshed = 0;
+        int afterId = 0;
+        while (true) {
+            List<ReviewRepository.IndexRow> rows =
+                    repository.findIndexRowsUpdatedSince(since, afterId, Limit.of(BATCH_SIZE));
+            // 構築中の側は、再構築の終わりに反映し直される
+            searchIndex.upsertRows(rows);
+            ratingAggregates.recordRows(rows);
+            refreshed += rows.size();
+            if (rows.size() < BATCH_SIZE) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        checkedAt = startedAt;
+        log.debug("Refreshed {} reviews updated since {}", refreshed, since);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.rebuild-interval:PT15M}",
+            initialDelayString = "${app.search.rebuild-interval:PT15M}")
+    public void rebuildAll() {
+        // 無効にしているもの・まだ構築していないものは作らない
+        try {
+            if (searchIndex.isReady()) {
+                searchIndex.rebuild();
+            }
+            if (ratingAggregates.isReady()) {
+                ratingAggregates.rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to rebuild review search data; keeping the current one", e);
+        }
+    }
+}
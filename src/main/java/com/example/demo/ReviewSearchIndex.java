@@ -0,0 +1,589 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * レビュー検索用のインメモリ転置インデックス。
+ * 授業名・教員名・大学名（レビューの大学＋投稿者の大学）を bi-gram で索引し、
+ * LIKE '%kw%' の全件走査の代わりに候補 id を絞り込む。
+ * 並び替えキー（評価・いいね数）も持っているので、キーセットページングもここで行う。
+ * <p>
+ * ファセット（ReviewFacet）の値も番号に置き換えて持ち、検索語に一致した候補を 1 回走査するあいだに
+ * ファセットでの絞り込みとファセットごとの件数の集計を済ませる（ファセットごとにクエリを投げない）。
+ * <p>
+ * 構築・差分の反映・再構築は RebuildableState に任せる。このインスタンスでの書き込みはコミット後に反映する。
+ * 他のインスタンスでの書き込みは ReviewSearchDataRefresher が定期的に取り込むので、その間隔の分だけ遅れる。
+ */
+@Component
+public class ReviewSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewSearchIndex.class);
+
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    // 検索対象のフィールド（"all" はこの 3 つの和集合）
+    enum Field { COURSE, TEACHER, UNIVERSITY }
+
+    private final ReviewRepository repository;
+    private final Map<ReviewFacet, ValueCodes> facetValues = new EnumMap<>(ReviewFacet.class);
+    private final RebuildableState<Snapshot> state;
+
+    public ReviewSearchIndex(ReviewRepository repository,
+                             @Value("${app.search.index.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.state = new RebuildableState<>("review-search-index", enabled, new Snapshot());
+        for (ReviewFacet facet : ReviewFacet.values()) {
+            facetValues.put(facet, new ValueCodes());
+        }
+    }
+
+    // 構築が終わるまでは DB 検索にフォールバック
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        state.buildInBackground(this::load);
+    }
+
+    public boolean isReady() {
+        return state.isReady();
+    }
+
+    // 索引が変わるたびに進む番号（このインスタンスの中でだけ意味がある）
+    public long getGeneration() {
+        return state.generation();
+    }
+
+    // DB から全件を読み直して作り直す（id のキーセットで少しずつ読む）
+    public void rebuild() {
+        state.rebuild(this::load);
+        int size = state.read(snapshot -> snapshot.docs.size());
+        log.info("Review search index built: {} reviews", size);
+    }
+
+    private Snapshot load() {
+        Snapshot fresh = new Snapshot();
+        repository.forEachIndexRow(REBUILD_BATCH_SIZE, row -> fresh.put(docOf(row)));
+        return fresh;
+    }
+
+    // =========================
+    // 差分更新（ReviewService の保存・削除から呼ばれる）
+    // =========================
+    public void upsert(Review review) {
+        if (review == null || review.getId() == null) {
+            return;
+        }
+        Doc doc = Doc.of(review, facetCodes(review.getUniversity(), review.getTestMethod(),
+                review.getAttendanceMethod(), review.getRating()));
+        state.apply(snapshot -> snapshot.put(doc));
+    }
+
+    // DB から読み直した行をそのまま反映する（他のインスタンスでの書き込みの取り込み）
+    public void upsertRows(List<ReviewRepository.IndexRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<Doc> docs = new ArrayList<>(rows.size());
+        for (ReviewRepository.IndexRow row : rows) {
+            docs.add(docOf(row));
+        }
+        state.apply(snapshot -> docs.forEach(snapshot::put));
+    }
+
+    public void remove(Integer id) {
+        if (id == null) {
+            return;
+        }
+        state.apply(snapshot -> snapshot.remove(id));
+    }
+
+    public void updateLikes(Integer id, int likes) {
+        if (id == null) {
+            return;
+        }
+        state.apply(snapshot -> snapshot.updateLikes(id, likes));
+    }
+
+    // 索引の中身は変わらないが、検索結果の表示が変わる書き込み（コメント・画像）。コミット後に世代だけ進める
+    public void markChanged() {
+        state.apply(snapshot -> { });
+    }
+
+    // =========================
+    // 検索
+    // =========================
+    // filters で選ばれたファセットの値にすべて一致するものだけを返す。
+    // ファセットの件数は、そのファセット自身の選択だけを外して数える（選んだ後も同じファセットのほかの値に
+    // 切り替えたり比べたりできるように）。カーソルより前のページの分も含めた全件で数える
+    public IndexPage search(String keyword, String target, String sortKey, ReviewCursor cursor, int limit,
+                            Map<ReviewFacet, String> filters) {
+        String query = SearchText.normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return new IndexPage(List.of(), null, Map.of());
+        }
+
+        Comparator<Doc> order = orderOf(sortKey);
+        Doc after = cursor == null ? null : Doc.probe(sortKey, cursor);
+        int[] selected = selectedCodes(filters);
+        ReviewFacet[] facets = ReviewFacet.values();
+
+        // 並び順で「最後」の要素が先頭に来るヒープで、上位 limit + 1 件だけ残す
+        PriorityQueue<Doc> top = new PriorityQueue<>(limit + 2, order.reversed());
+        int[][] counts = new int[facets.length][];
+        state.read(snapshot -> {
+            // スナップショットにある Doc の番号は、どれもここで読む大きさより小さい
+            for (ReviewFacet facet : facets) {
+                counts[facet.ordinal()] = new int[facetValues.get(facet).size()];
+            }
+            for (int id : snapshot.match(query, fieldsOf(target))) {
+                Doc doc = snapshot.docs.get(id);
+                int missed = doc.missedFacet(selected);
+                if (missed >= 0) {
+                    // 選択と合わないのが 1 つだけなら、そのファセットの件数にだけ入る
+                    int code = doc.facets[missed];
+                    if (code >= 0) {
+                        counts[missed][code]++;
+                    }
+                    continue;
+                }
+                if (missed != Doc.ALL_MATCHED) {
+                    continue;
+                }
+                for (int f = 0; f < counts.length; f++) {
+                    int code = doc.facets[f];
+                    if (code >= 0) {
+                        counts[f][code]++;
+                    }
+                }
+                if (after != null && order.compare(doc, after) <= 0) {
+                    continue;
+                }
+                top.offer(doc);
+                if (top.size() > limit + 1) {
+                    top.poll();
+                }
+            }
+            return null;
+        });
+
+        List<Doc> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        boolean hasNext = sorted.size() > limit;
+        List<Doc> page = hasNext ? sorted.subList(0, limit) : sorted;
+
+        List<Integer> ids = new ArrayList<>(page.size());
+        for (Doc doc : page) {
+            ids.add(doc.id);
+        }
+        ReviewCursor next = hasNext ? page.get(page.size() - 1).cursor(sortKey) : null;
+        return new IndexPage(ids, next, facetCounts(counts));
+    }
+
+    private Doc docOf(ReviewRepository.IndexRow row) {
+        return Doc.of(row, facetCodes(row.getUniversity(), row.getTestMethod(), row.getAttendanceMethod(),
+                row.getRating()));
+    }
+
+    private int[] facetCodes(String university, String testMethod, String attendanceMethod, double rating) {
+        ReviewFacet[] facets = ReviewFacet.values();
+        int[] codes = new int[facets.length];
+        for (ReviewFacet facet : facets) {
+            String value = facet.valueOf(university, testMethod, attendanceMethod, rating);
+            codes[facet.ordinal()] = value == null ? -1 : facetValues.get(facet).code(value);
+        }
+        return codes;
+    }
+
+    // 絞り込まないファセットは ANY。知らない値は、どの Doc の番号とも一致しない NONE にする
+    private int[] selectedCodes(Map<ReviewFacet, String> filters) {
+        int[] selected = new int[ReviewFacet.values().length];
+        Arrays.fill(selected, Doc.ANY);
+        for (Map.Entry<ReviewFacet, String> filter : filters.entrySet()) {
+            String value = ReviewFacet.normalize(filter.getValue());
+            if (value == null) {
+                continue;
+            }
+            int code = facetValues.get(filter.getKey()).find(value);
+            selected[filter.getKey().ordinal()] = code < 0 ? Doc.NONE : code;
+        }
+        return selected;
+    }
+
+    // 件数が 1 以上の値だけを、値 → 件数で返す
+    private Map<ReviewFacet, Map<String, Integer>> facetCounts(int[][] counts) {
+        Map<ReviewFacet, Map<String, Integer>> result = new EnumMap<>(ReviewFacet.class);
+        for (ReviewFacet facet : ReviewFacet.values()) {
+            int[] byCode = counts[facet.ordinal()];
+            ValueCodes values = facetValues.get(facet);
+            Map<String, Integer> byValue = new HashMap<>();
+            for (int code = 0; code < byCode.length; code++) {
+                if (byCode[code] > 0) {
+                    byValue.put(values.value(code), byCode[code]);
+                }
+            }
+            result.put(facet, byValue);
+        }
+        return result;
+    }
+
+    private static List<Field> fieldsOf(String target) {
+        return switch (target == null ? "all" : target) {
+            case "course" -> List.of(Field.COURSE);
+            case "teacher" -> List.of(Field.TEACHER);
+            case "university" -> List.of(Field.UNIVERSITY);
+            default -> List.of(Field.COURSE, Field.TEACHER, Field.UNIVERSITY);
+        };
+    }
+
+    // ReviewService.createSort と同じ並び（同値は id の降順）
+    private static Comparator<Doc> orderOf(String sortKey) {
+        Comparator<Doc> byId = (a, b) -> Integer.compare(b.id, a.id);
+        return switch (sortKey) {
+            case "rating" -> ((Comparator<Doc>) (a, b) -> Double.compare(b.rating, a.rating)).thenComparing(byId);
+            case "likes"  -> ((Comparator<Doc>) (a, b) -> Integer.compare(b.likes, a.likes)).thenComparing(byId);
+            default       -> byId;
+        };
+    }
+
+    public static class IndexPage {
+        private final List<Integer> ids;
+        private final ReviewCursor nextCursor;
+        private final Map<ReviewFacet, Map<String, Integer>> facetCounts;
+
+        IndexPage(List<Integer> ids, ReviewCursor nextCursor, Map<ReviewFacet, Map<String, Integer>> facetCounts) {
+            this.ids = ids;
+            this.nextCursor = nextCursor;
+            this.facetCounts = facetCounts;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+
+        public ReviewCursor getNextCursor() {
+            return nextCursor;
+        }
+
+        // ファセットごとの、値 → 件数
+        public Map<ReviewFacet, Map<String, Integer>> getFacetCounts() {
+            return facetCounts;
+        }
+    }
+
+    // =========================
+    // 内部データ構造
+    // =========================
+
+    // 1 件のレビューの索引用データ（正規化済みの文字列・ファセットの値の番号・並び替えキー）
+    private static final class Doc {
+        static final int ANY = -1;
+        static final int NONE = -2;
+
+        // missedFacet の戻り値（0 以上は、ただ 1 つ合わなかったファセットの番号）
+        static final int ALL_MATCHED = -1;
+        static final int MISSED_SEVERAL = -2;
+
+        final int id;
+        final String[] texts;
+        final int[] facets; // ReviewFacet の順。値が空なら -1
+        final double rating;
+        final int likes;
+
+        Doc(int id, String[] texts, int[] facets, double rating, int likes) {
+            this.id = id;
+            this.texts = texts;
+            this.facets = facets;
+            this.rating = rating;
+            this.likes = likes;
+        }
+
+        static Doc of(Review review, int[] facets) {
+            String userUniversity = review.getUser() != null ? review.getUser().getUniversity() : null;
+            return new Doc(review.getId(),
+                    texts(review.getCourseName(), review.getTeacherName(), review.getUniversity(), userUniversity),
+                    facets, review.getRating(), review.getLikes());
+        }
+
+        static Doc of(ReviewRepository.IndexRow row, int[] facets) {
+            return new Doc(row.getId(),
+                    texts(row.getCourseName(), row.getTeacherName(), row.getUniversity(), row.getUserUniversity()),
+                    facets, row.getRating(), row.getLikes());
+        }
+
+        // カーソルと比較するためだけの仮の Doc
+        static Doc probe(String sortKey, ReviewCursor cursor) {
+            return new Doc(cursor.getId(), null, null,
+                    "rating".equals(sortKey) ? cursor.getValue() : 0,
+                    "likes".equals(sortKey) ? (int) cursor.getValue() : 0);
+        }
+
+        int missedFacet(int[] selected) {
+            int missed = ALL_MATCHED;
+            for (int f = 0; f < selected.length; f++) {
+                if (selected[f] != ANY && selected[f] != facets[f]) {
+                    if (missed != ALL_MATCHED) {
+                        return MISSED_SEVERAL;
+                    }
+                    missed = f;
+                }
+            }
+            return missed;
+        }
+
+        // 大学名はレビューの大学と投稿者の大学を改行でつなぐ（検索語は改行を含まないので跨いで一致しない）
+        private static String[] texts(String course, String teacher, String university, String userUniversity) {
+            String[] texts = new String[Field.values().length];
+            texts[Field.COURSE.ordinal()] = SearchText.normalize(course);
+            texts[Field.TEACHER.ordinal()] = SearchText.normalize(teacher);
+            texts[Field.UNIVERSITY.ordinal()] =
+                    SearchText.normalize(university) + "\n" + SearchText.normalize(userUniversity);
+            return texts;
+        }
+
+        Doc withLikes(int newLikes) {
+            return new Doc(id, texts, facets, rating, newLikes);
+        }
+
+        ReviewCursor cursor(String sortKey) {
+            double value = switch (sortKey) {
+                case "rating" -> rating;
+                case "likes"  -> likes;
+                default       -> id;
+            };
+            return new ReviewCursor(value, id);
+        }
+    }
+
+    private static final class Snapshot {
+        final Map<Integer, Doc> docs = new HashMap<>();
+        final Map<Field, Map<String, Postings>> postings = new EnumMap<>(Field.class);
+
+        Snapshot() {
+            for (Field field : Field.values()) {
+                postings.put(field, new HashMap<>());
+            }
+        }
+
+        void put(Doc doc) {
+            Doc old = docs.get(doc.id);
+            // 編集前に読んだエンティティのいいね数は古いことがある。いいねは増える一方なので大きい方を残す
+            if (old != null && old.likes > doc.likes) {
+                doc = doc.withLikes(old.likes);
+            }
+            docs.put(doc.id, doc);
+            for (Field field : Field.values()) {
+                String oldText = old == null ? null : old.texts[field.ordinal()];
+                String newText = doc.texts[field.ordinal()];
+                if (newText.equals(oldText)) {
+                    continue;
+                }
+                if (oldText != null) {
+                    unindex(field, doc.id, oldText);
+                }
+                index(field, doc.id, newText);
+            }
+        }
+
+        void remove(int id) {
+            Doc old = docs.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (Field field : Field.values()) {
+                unindex(field, id, old.texts[field.ordinal()]);
+            }
+        }
+
+        // いいねは増える一方なので、反映順が前後しても大きい方を残す
+        void updateLikes(int id, int likes) {
+            Doc doc = docs.get(id);
+            if (doc != null && likes > doc.likes) {
+                docs.put(id, doc.withLikes(likes));
+            }
+        }
+
+        private void index(Field field, int id, String text) {
+            Map<String, Postings> map = postings.get(field);
+            for (String gram : SearchText.grams(text)) {
+                map.computeIfAbsent(gram, g -> new Postings()).add(id);
+            }
+        }
+
+        private void unindex(Field field, int id, String text) {
+            Map<String, Postings> map = postings.get(field);
+            for (String gram : SearchText.grams(text)) {
+                Postings list = map.get(gram);
+                if (list != null && list.remove(id) && list.size == 0) {
+                    map.remove(gram);
+                }
+            }
+        }
+
+        // 検索語を含むレビューの id（昇順・重複なし）
+        int[] match(String query, List<Field> fields) {
+            if (query.length() < SearchText.GRAM_SIZE) {
+                return scan(query, fields);
+            }
+
+            Set<String> grams = SearchText.grams(query);
+            int[] result = new int[0];
+            for (Field field : fields) {
+                result = union(result, matchField(field, query, grams));
+            }
+            return result;
+        }
+
+        // bi-gram の積集合で候補を出し、本文で部分一致を確認する（bi-gram の並び違いを除くため）
+        private int[] matchField(Field field, String query, Set<String> grams) {
+            Map<String, Postings> map = postings.get(field);
+            List<Postings> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Postings list = map.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            Postings smallest = lists.get(0);
+            int[] matched = new int[smallest.size];
+            int count = 0;
+            for (int i = 0; i < smallest.size; i++) {
+                int id = smallest.ids[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.size() && inAll; j++) {
+                    inAll = lists.get(j).contains(id);
+                }
+                if (inAll && docs.get(id).texts[field.ordinal()].contains(query)) {
+                    matched[count++] = id;
+                }
+            }
+            return Arrays.copyOf(matched, count);
+        }
+
+        // 1 文字の検索語は bi-gram で引けないので全件を見る
+        private int[] scan(String query, List<Field> fields) {
+            int[] matched = new int[docs.size()];
+            int count = 0;
+            for (Doc doc : docs.values()) {
+                for (Field field : fields) {
+                    if (doc.texts[field.ordinal()].contains(query)) {
+                        matched[count++] = doc.id;
+                        break;
+                    }
+                }
+            }
+            int[] result = Arrays.copyOf(matched, count);
+            Arrays.sort(result);
+            return result;
+        }
+
+        private static int[] union(int[] a, int[] b) {
+            if (a.length == 0) {
+                return b;
+            }
+            if (b.length == 0) {
+                return a;
+            }
+            int[] merged = new int[a.length + b.length];
+            int i = 0, j = 0, n = 0;
+            while (i < a.length || j < b.length) {
+                int next;
+                if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                    next = a[i++];
+                } else if (i >= a.length || b[j] < a[i]) {
+                    next = b[j++];
+                } else {
+                    next = a[i++];
+                    j++;
+                }
+                merged[n++] = next;
+            }
+            return Arrays.copyOf(merged, n);
+        }
+    }
+
+    // ファセットの値と番号の対応。番号は追加するだけで消さない（再構築しても変わらない）
+    private static final class ValueCodes {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        synchronized int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        // 無ければ -1
+        synchronized int find(String value) {
+            return codes.getOrDefault(value, -1);
+        }
+
+        synchronized String value(int code) {
+            return values.get(code);
+        }
+
+        synchronized int size() {
+            return values.size();
+        }
+    }
+
+    // id の昇順に並んだ可変長の int 配列（ほとんどの追加は末尾なので O(1)）
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+}
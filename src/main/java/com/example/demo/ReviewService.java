@@ -1,104 +1,480 @@
 package com.example.demo;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+// 読むだけのメソッドは @Transactional(readOnly = true)。レプリカを設定したとき（ReplicaDataSourceConfig）はレプリカから読む
 @Service
 public class ReviewService {
 
     private static final int SUGGEST_LIMIT = 8;
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    // ファセットごとに表示する値の数（選んでいる値はこれを超えても入れる）
+    public static final int FACET_VALUE_LIMIT = 10;
+    // コメントへの返信をどの深さまで入れ子で表示するか（それより深い返信は同じ深さに並べる）
+    public static final int MAX_REPLY_DEPTH = 3;
 
     private final ReviewRepository repository;
     private final CommentRepository commentRepository;
-    private final List<String> passnaviSchoolNames;
+    private final ReviewSearchIndex searchIndex;
+    private final RatingAggregateStore ratingAggregates;
+    private final UniversitySuggestIndex universitySuggestIndex;
+    // 検索結果の版に付ける、このインスタンスの印（世代の番号はインスタンスごとに別々に数えるので）
+    private final String instanceId = UUID.randomUUID().toString();
 
     public ReviewService(ReviewRepository repository,
                          CommentRepository commentRepository,
+                         ReviewSearchIndex searchIndex,
+                         RatingAggregateStore ratingAggregates,
                          ObjectMapper objectMapper) {
         this.repository = repository;
         this.commentRepository = commentRepository;
-        this.passnaviSchoolNames = loadPassnaviSchoolNames(objectMapper);
+        this.searchIndex = searchIndex;
+        this.ratingAggregates = ratingAggregates;
+        this.universitySuggestIndex = UniversitySuggestIndex.of(SchoolList.load(objectMapper));
     }
 
     // =========================
-    // 検索 ＋ 並び替え
+    // 検索 ＋ 並び替え（キーセットページング）
     // =========================
-    public List<Review> search(String keyword, String target, String sortKey) {
-        Sort sort = createSort(sortKey);
+    @Transactional(readOnly = true)
+    public ReviewPage<Review> search(String keyword, String target, String sortKey, String cursor, int size) {
+        return search(keyword, target, sortKey, cursor, size, Map.of());
+    }
 
-        // キーワード無し → 全件
-        if (keyword == null || keyword.isBlank()) {
-            return repository.findAll(sort);
+    // filters: ファセット → 選んだ値。結果のファセットごとの件数は ReviewPage.getFacets で返す
+    @Transactional(readOnly = true)
+    public ReviewPage<Review> search(String keyword, String target, String sortKey, String cursor, int size,
+                                     Map<ReviewFacet, String> filters) {
+        return page(keyword, target, sortKey, cursor, size, filters, this::findAllInOrder);
+    }
+
+    // JSON API 用：search と同じ並び・同じカーソルで、API が返す列だけを読む
+    @Transactional(readOnly = true)
+    public ReviewPage<ReviewView> searchViews(String keyword, String target, String sortKey, String cursor, int size) {
+        return searchViews(keyword, target, sortKey, cursor, size, Map.of());
+    }
+
+    @Transactional(readOnly = true)
+    public ReviewPage<ReviewView> searchViews(String keyword, String target, String sortKey, String cursor, int size,
+                                              Map<ReviewFacet, String> filters) {
+        return page(keyword, target, sortKey, cursor, size, filters, this::findViewsInOrder);
+    }
+
+    // 先にページに載る id の並びだけを決め（インデックス、無ければ並び替えキーだけの DB 検索）、
+    // そのページの分を loader で 1 クエリで読む。件数によらずクエリ数が一定になる
+    private <T> ReviewPage<T> page(String keyword, String target, String sortKey, String cursor, int size,
+                                   Map<ReviewFacet, String> filters, Function<List<Integer>, List<T>> loader) {
+        String sortMode = normalizeSortKey(sortKey);
+        Limit limit = Limit.of(normalizePageSize(size));
+
+        // ファセットの件数と絞り込みは、インデックスが候補を 1 回走査するあいだに済ませる
+        if (keyword != null && !keyword.isBlank() && searchIndex.isReady()) {
+            ReviewSearchIndex.IndexPage hits = searchIndex.search(
+                    keyword, target, sortMode, ReviewCursor.decode(cursor), limit.max(), filters);
+            ReviewCursor next = hits.getNextCursor();
+            return new ReviewPage<>(loader.apply(hits.getIds()), next == null ? null : next.encode(),
+                    facetGroups(hits.getFacetCounts(), filters));
+        }
+
+        // インデックスが無いとき（キーワード無し・構築中）は、読んだページの中でだけ絞り込む。
+        // カーソルは絞り込む前の末尾から作るので続きは正しく読めるが、ページが size 件より短くなることがある。
+        // ファセットの件数は、値の組み合わせごとの件数を DB で数えて、インデックスと同じ数え方で足し合わせる
+        Window<ReviewRepository.ReviewKey> window = scroll(keyword, target, sortMode, cursor, limit,
+                ReviewRepository.ReviewKey.class);
+        List<Integer> ids = new ArrayList<>(window.size());
+        for (ReviewRepository.ReviewKey key : window) {
+            if (matchesFacets(key, filters)) {
+                ids.add(key.getId());
+            }
+        }
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            ReviewRepository.ReviewKey last = window.getContent().get(window.size() - 1);
+            nextCursor = ReviewCursor.of(last.getId(), last.getRating(), last.getLikes(), sortMode).encode();
         }
+        return new ReviewPage<>(loader.apply(ids), nextCursor,
+                facetGroups(countFacets(keyword, target, filters), filters));
+    }
+
+    // ReviewSearchIndex.search と同じ数え方：選択にすべて合うレビューはどのファセットにも数え、
+    // 合わないのが 1 つだけなら、そのファセットにだけ数える（ファセット自身の選択は外して数える）
+    private Map<ReviewFacet, Map<String, Integer>> countFacets(String keyword, String target,
+                                                               Map<ReviewFacet, String> filters) {
+        String field = target == null ? "all" : target;
+        boolean all = !List.of("course", "teacher", "university").contains(field);
+        List<ReviewRepository.FacetRow> rows = repository.countFacetValues(keyword == null || keyword.isBlank(),
+                lower(keyword),
+                all || "course".equals(field), all || "teacher".equals(field), all || "university".equals(field));
+
+        ReviewFacet[] facets = ReviewFacet.values();
+        Map<ReviewFacet, Map<String, Integer>> counts = new EnumMap<>(ReviewFacet.class);
+        for (ReviewFacet facet : facets) {
+            counts.put(facet, new HashMap<>());
+        }
+        for (ReviewRepository.FacetRow row : rows) {
+            String[] values = new String[facets.length];
+            ReviewFacet missed = null;
+            int misses = 0;
+            for (ReviewFacet facet : facets) {
+                String value = facet.valueOf(row.getUniversity(), row.getTestMethod(), row.getAttendanceMethod(),
+                        row.getRating());
+                values[facet.ordinal()] = value;
+                String selected = filters.get(facet);
+                if (selected != null && !selected.equals(value)) {
+                    missed = facet;
+                    misses++;
+                }
+            }
+            for (ReviewFacet facet : facets) {
+                String value = values[facet.ordinal()];
+                if (value != null && (misses == 0 || (misses == 1 && facet == missed))) {
+                    counts.get(facet).merge(value, (int) row.getCount(), Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private static boolean matchesFacets(ReviewRepository.ReviewKey key, Map<ReviewFacet, String> filters) {
+        for (Map.Entry<ReviewFacet, String> filter : filters.entrySet()) {
+            String value = filter.getKey().valueOf(
+                    key.getUniversity(), key.getTestMethod(), key.getAttendanceMethod(), key.getRating());
+            if (!filter.getValue().equals(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 値 → 件数を表示用に並べる（★は 5 から順に、ほかは件数の多い順に FACET_VALUE_LIMIT 件まで）
+    private static List<FacetGroup> facetGroups(Map<ReviewFacet, Map<String, Integer>> counts,
+                                                Map<ReviewFacet, String> filters) {
+        List<FacetGroup> groups = new ArrayList<>();
+        for (ReviewFacet facet : ReviewFacet.values()) {
+            String selected = filters.get(facet);
+            List<FacetCount> values = new ArrayList<>();
+            counts.getOrDefault(facet, Map.of()).forEach((value, count) ->
+                    values.add(new FacetCount(value, count, value.equals(selected))));
+            if (selected != null && values.stream().noneMatch(FacetCount::isSelected)) {
+                values.add(new FacetCount(selected, 0, true));
+            }
+
+            if (facet == ReviewFacet.STAR) {
+                values.sort(Comparator.comparing(FacetCount::getValue).reversed());
+            } else {
+                values.sort(Comparator.comparingLong(FacetCount::getCount).reversed()
+                        .thenComparing(FacetCount::getValue));
+            }
+            List<FacetCount> shown = new ArrayList<>();
+            for (FacetCount value : values) {
+                if (shown.size() < FACET_VALUE_LIMIT || value.isSelected()) {
+                    shown.add(value);
+                }
+            }
+            groups.add(new FacetGroup(facet.getParam(), shown));
+        }
+        return groups;
+    }
 
+    @Transactional(readOnly = true)
+    public ReviewView getViewById(Integer id) {
+        List<ReviewView> views = repository.findViewsByIdIn(List.of(id));
+        if (views.isEmpty()) {
+            throw new RuntimeException("Review not found: " + id);
+        }
+        return views.get(0);
+    }
+
+    // インデックスが使えないとき（キーワード無し・構築中）の DB 検索
+    private <T> Window<T> scroll(String keyword, String target, String sortMode, String cursor, Limit limit,
+                                 Class<T> type) {
+        Sort sort = createSort(sortMode);
+        ScrollPosition position = createPosition(sortMode, ReviewCursor.decode(cursor));
+
+        if (keyword == null || keyword.isBlank()) {
+            // キーワード無し → 全件を先頭から順に
+            return repository.findAllBy(position, sort, limit, type);
+        }
         // 対象によって分岐
-        switch (target) {
-            case "course":
-                return repository.findByCourseNameContainingIgnoreCase(keyword, sort);
-            case "teacher":
-                return repository.findByTeacherNameContainingIgnoreCase(keyword, sort);
-            case "university":
-                return repository.findByUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
-                        keyword, keyword, sort);
-            default: // all
-                return repository
-                        .findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCaseOrUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
-                                keyword, keyword, keyword, keyword, sort);
-        }
-    }
-
-    // 並び替え条件
+        return switch (target == null ? "all" : target) {
+            case "course" -> repository.findByCourseNameLowerContaining(lower(keyword), position, sort, limit, type);
+            case "teacher" -> repository.findByTeacherNameLowerContaining(lower(keyword), position, sort, limit, type);
+            case "university" -> repository.findByUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
+                    keyword, keyword, position, sort, limit, type);
+            default -> repository // all
+                    .findByCourseNameContainingIgnoreCaseOrTeacherNameContainingIgnoreCaseOrUniversityContainingIgnoreCaseOrUser_UniversityContainingIgnoreCase(
+                            keyword, keyword, keyword, keyword, position, sort, limit, type);
+        };
+    }
+
+    // id の並びを保ったまま、投稿者ごと 1 クエリで読み込む（他インスタンスで削除済みのものは飛ばす）
+    private List<Review> findAllInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Review> byId = new HashMap<>();
+        for (Review review : repository.findWithUserByIdIn(ids)) {
+            byId.put(review.getId(), review);
+        }
+        return inOrder(ids, byId);
+    }
+
+    private List<ReviewView> findViewsInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, ReviewView> byId = new HashMap<>();
+        for (ReviewView view : repository.findViewsByIdIn(ids)) {
+            byId.put(view.getId(), view);
+        }
+        return inOrder(ids, byId);
+    }
+
+    private static <T> List<T> inOrder(List<Integer> ids, Map<Integer, T> byId) {
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T item = byId.get(id);
+            if (item != null) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
+    }
+
+    private String normalizeSortKey(String sortKey) {
+        if ("rating".equals(sortKey) || "likes".equals(sortKey)) {
+            return sortKey;
+        }
+        return "recent";
+    }
+
+    // 授業名・教員名の生成列（LOWER(course_name) など）と比べるための小文字化
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private int normalizePageSize(int size) {
+        if (size <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    // 並び替え条件（同値のときは id の降順で順序を一意にする）
     private Sort createSort(String sortKey) {
         return switch (sortKey) {
-            case "rating" -> Sort.by(Sort.Direction.DESC, "rating"); // 評価順
-            case "likes"  -> Sort.by(Sort.Direction.DESC, "likes");  // いいね順
-            default       -> Sort.by(Sort.Direction.DESC, "id");     // 新しい順
+            case "rating" -> Sort.by(Sort.Direction.DESC, "rating", "id"); // 評価順
+            case "likes"  -> Sort.by(Sort.Direction.DESC, "likes", "id");  // いいね順
+            default       -> Sort.by(Sort.Direction.DESC, "id");           // 新しい順
         };
     }
 
+    // カーソルから「前ページ末尾の次」の位置を作る
+    private ScrollPosition createPosition(String sortKey, ReviewCursor cursor) {
+        if (cursor == null) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        switch (sortKey) {
+            case "rating" -> keys.put("rating", cursor.getValue());
+            case "likes"  -> keys.put("likes", (int) cursor.getValue());
+            default       -> { }
+        }
+        keys.put("id", cursor.getId());
+        return ScrollPosition.forward(keys);
+    }
+
+    public static class ReviewPage<T> {
+        private final List<T> items;
+        private final String nextCursor;
+        private final List<FacetGroup> facets;
+
+        public ReviewPage(List<T> items, String nextCursor) {
+            this(items, nextCursor, List.of());
+        }
+
+        public ReviewPage(List<T> items, String nextCursor, List<FacetGroup> facets) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+            this.facets = facets;
+        }
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+
+        public boolean isHasNext() {
+            return nextCursor != null;
+        }
+
+        // 検索したときのファセットごとの件数（各ファセットは、そのファセット自身の選択を外して数える）
+        public List<FacetGroup> getFacets() {
+            return facets;
+        }
+    }
+
+    public static class FacetGroup {
+        private final String name;
+        private final List<FacetCount> values;
+
+        public FacetGroup(String name, List<FacetCount> values) {
+            this.name = name;
+            this.values = values;
+        }
+
+        // ReviewFacet のパラメータ名（university / testMethod / attendanceMethod / star）
+        public String getName() {
+            return name;
+        }
+
+        public List<FacetCount> getValues() {
+            return values;
+        }
+    }
+
+    public static class FacetCount {
+        private final String value;
+        private final long count;
+        private final boolean selected;
+
+        public FacetCount(String value, long count, boolean selected) {
+            this.value = value;
+            this.count = count;
+            this.selected = selected;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public boolean isSelected() {
+            return selected;
+        }
+    }
+
     // =========================
     // 基本的な CRUD
     // =========================
+    // 検索インデックスには投稿者の大学も入れるので、投稿者（遅延ロード）を読めるようトランザクション内で索引用のデータを作る。
+    // メモリ上の索引・集計に反映するのはコミットの後（巻き戻ったら反映しない）
+    @Transactional
     public void addReview(Review review) {
-        repository.save(review);
+        Review saved = repository.save(review);
+        searchIndex.upsert(saved);
+        ratingAggregates.record(saved);
     }
 
+    // 更新番号はエンティティではなく SQL で進める（同時のいいねの加算を上書きしないため）
+    @Transactional
     public void save(Review review) {
-        repository.save(review);
+        Review saved = repository.save(review);
+        repository.touch(saved.getId());
+        searchIndex.upsert(saved);
+        ratingAggregates.record(saved);
     }
 
+    @Transactional
     public void deleteById(Integer id) {
         repository.deleteById(id);
+        searchIndex.remove(id);
+        ratingAggregates.remove(id);
+    }
+
+    // JDBC で直接書き込んだ後（一括取り込みなど）に、メモリ上の検索インデックスと評価の集計を作り直す
+    public void rebuildSearchData() {
+        searchIndex.rebuild();
+        ratingAggregates.rebuild();
+    }
+
+    // 画像処理が終わったら元画像と縮小版のパスを記録する（処理中に削除されていたら何もしない）
+    @Transactional
+    public void attachImages(Integer id, String imagePath, String displayPath, String thumbnailPath) {
+        repository.findById(id).ifPresent(review -> {
+            review.setImagePath(imagePath);
+            review.setDisplayPath(displayPath);
+            review.setThumbnailPath(thumbnailPath);
+            repository.touch(id);
+            searchIndex.markChanged(); // 検索結果カードのサムネイルが変わる
+        });
     }
 
+    @Transactional(readOnly = true)
     public Review getById(Integer id) {
         return repository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Review not found: " + id));
     }
 
+    // =========================
+    // 条件付き GET（ETag・Last-Modified）用の更新印
+    // =========================
+    // レビュー 1 件の更新番号と日時（無ければ null）。エンティティを読まない軽いクエリ
+    @Transactional(readOnly = true)
+    public ReviewRepository.ReviewStamp getStamp(Integer id) {
+        return repository.findStampById(id).orElse(null);
+    }
+
+    // 検索結果用：このインスタンスのメモリ上の検索インデックスと評価の集計の版（DB は読まない）。
+    // 検索結果はこの 2 つから作るので、他のインスタンスでの書き込みも取り込んだ時点で版が変わる
+    // （取り込むまでの refresh-interval のあいだは、古い版のまま 304 を返すことがある）。
+    // どちらかが構築中で DB にフォールバックしているときは null（ETag を付けない）
+    public String getSearchResultsVersion() {
+        if (!searchIndex.isReady() || !ratingAggregates.isReady()) {
+            return null;
+        }
+        return instanceId + ":" + searchIndex.getGeneration() + ":" + ratingAggregates.getGeneration();
+    }
+
     // =========================
     // いいね
     // =========================
+    // UPDATE ... SET likes = likes + 1 で加算する。行ロックで直列化されるので同時押しでも数がずれない
+    @Transactional
     public void like(Integer id) {
-        Review r = getById(id);
-        r.incrementLikes();
-        repository.save(r);
+        if (repository.incrementLikes(id) == 0) {
+            throw new RuntimeException("Review not found: " + id);
+        }
+        // 同じトランザクション内で読むので、自分の加算を含んだ値が返る
+        repository.findLikesById(id).ifPresent(likes -> searchIndex.updateLikes(id, likes));
     }
 
     // =========================
     // 平均値計算
     // =========================
+    @Transactional(readOnly = true)
     public double getAverage(String courseName) {
-        List<Review> list = repository.findByCourseNameContainingIgnoreCase(courseName);
+        if (ratingAggregates.isReady()) {
+            RatingAggregateStore.Aggregate aggregate =
+                    ratingAggregates.find(RatingAggregateStore.Dimension.COURSE, courseName);
+            return aggregate.getCount() == 0 ? 0 : aggregate.getSum() / aggregate.getCount();
+        }
+
+        List<Review> list = repository.findByCourseNameLowerContaining(lower(courseName));
         if (list.isEmpty()) return 0;
 
         double sum = 0;
@@ -108,29 +484,60 @@ public class ReviewService {
         return sum / list.size();
     }
 
+    // 検索結果全体の評価サマリー（集計ストアが使えるときはそこから、無ければ集計クエリで取る）
+    @Transactional(readOnly = true)
+    public RatingSummary getRatingSummary(String keyword, String target) {
+        if (!"course".equals(target) && !"teacher".equals(target)) {
+            return buildRatingSummary(new long[6], 0, 0);
+        }
+
+        if (ratingAggregates.isReady()) {
+            RatingAggregateStore.Aggregate aggregate = ratingAggregates.find(
+                    "course".equals(target) ? RatingAggregateStore.Dimension.COURSE : RatingAggregateStore.Dimension.TEACHER,
+                    keyword);
+            return buildRatingSummary(aggregate.getStarCounts(), aggregate.getSum(), aggregate.getCount());
+        }
+
+        List<ReviewRepository.RatingCount> counts = "course".equals(target)
+                ? repository.countRatingsByCourseNameContaining(lower(keyword))
+                : repository.countRatingsByTeacherNameContaining(lower(keyword));
+
+        long[] starCounts = new long[6];
+        double sum = 0;
+        long total = 0;
+        for (ReviewRepository.RatingCount count : counts) {
+            starCounts[normalizeStar(count.getRating())] += count.getCount();
+            sum += count.getRating() * count.getCount();
+            total += count.getCount();
+        }
+        return buildRatingSummary(starCounts, sum, total);
+    }
+
     public RatingSummary buildRatingSummary(List<Review> reviews) {
         if (reviews == null || reviews.isEmpty()) {
             return new RatingSummary(0, 0, List.of());
         }
 
-        Map<Integer, Long> counter = new LinkedHashMap<>();
-        for (int score = 5; score >= 1; score--) {
-            counter.put(score, 0L);
-        }
-
+        long[] starCounts = new long[6];
         double sum = 0;
         for (Review review : reviews) {
             sum += review.getRating();
-            int star = normalizeStar(review.getRating());
-            counter.computeIfPresent(star, (k, v) -> v + 1);
+            starCounts[normalizeStar(review.getRating())]++;
+        }
+        return buildRatingSummary(starCounts, sum, reviews.size());
+    }
+
+    // starCounts[1]〜starCounts[5] に★ごとの件数が入っている前提
+    private RatingSummary buildRatingSummary(long[] starCounts, double sum, long total) {
+        if (total == 0) {
+            return new RatingSummary(0, 0, List.of());
         }
 
-        long total = reviews.size();
         List<RatingBreakdown> breakdowns = new ArrayList<>();
-        for (Map.Entry<Integer, Long> entry : counter.entrySet()) {
-            long count = entry.getValue();
-            double percentage = total == 0 ? 0 : (count * 100.0) / total;
-            breakdowns.add(new RatingBreakdown(entry.getKey(), count, percentage));
+        for (int score = 5; score >= 1; score--) {
+            long count = starCounts[score];
+            double percentage = (count * 100.0) / total;
+            breakdowns.add(new RatingBreakdown(score, count, percentage));
         }
 
         double average = normalizeHalf(sum / total);
@@ -138,8 +545,7 @@ public class ReviewService {
     }
 
     private int normalizeStar(double rating) {
-        int rounded = (int) Math.round(rating);
-        return Math.max(1, Math.min(5, rounded));
+        return ReviewFacet.star(rating);
     }
 
     private double normalizeHalf(double rating) {
@@ -197,77 +603,174 @@ public class ReviewService {
     // =========================
     // コメント関連
     // =========================
-    public List<Comment> getComments(Review review) {
-        return commentRepository.findByReviewAndParentCommentIsNullOrderByIdAsc(review);
+    // 詳細画面用：レビューのコメントを投稿者ごと 1 クエリで全部読み、メモリ上でスレッドに組み立てる。
+    // スレッド（トップレベルのコメント）単位で page ページ目の size 件だけ返す
+    @Transactional(readOnly = true)
+    public CommentThreadPage getCommentThreads(Integer reviewId, int page, int size) {
+        int pageSize = Math.max(1, size);
+        List<Comment> comments = commentRepository.findAllWithUserByReviewId(reviewId);
+
+        Map<Long, CommentNode> nodes = new HashMap<>();
+        List<CommentNode> threads = new ArrayList<>();
+        // id 順（＝投稿順）なので、親は必ず子より先に出てくる
+        for (Comment comment : comments) {
+            Comment parent = comment.getParentComment();
+            CommentNode parentNode = parent == null ? null : nodes.get(parent.getId());
+            if (parentNode == null) {
+                CommentNode node = new CommentNode(comment, 0);
+                nodes.put(comment.getId(), node);
+                threads.add(node);
+                continue;
+            }
+            // 深すぎる返信は、上限の深さの返信に並べる
+            CommentNode attachTo = parentNode.depth < MAX_REPLY_DEPTH ? parentNode : parentNode.parent;
+            CommentNode node = new CommentNode(comment, attachTo.depth + 1);
+            node.parent = attachTo;
+            attachTo.replies.add(node);
+            nodes.put(comment.getId(), node);
+        }
+
+        int totalPages = Math.max(1, (threads.size() + pageSize - 1) / pageSize);
+        int current = Math.min(Math.max(0, page), totalPages - 1);
+        int from = current * pageSize;
+        int to = Math.min(threads.size(), from + pageSize);
+        return new CommentThreadPage(threads.subList(from, to), current, totalPages, threads.size());
     }
 
+    // コメント 1 件と、その下の返信
+    public static class CommentNode {
+        private final Comment comment;
+        private final int depth;
+        private final List<CommentNode> replies = new ArrayList<>();
+        private CommentNode parent;
+
+        CommentNode(Comment comment, int depth) {
+            this.comment = comment;
+            this.depth = depth;
+        }
+
+        public Comment getComment() {
+            return comment;
+        }
+
+        // 0 がトップレベル、返信は 1〜MAX_REPLY_DEPTH
+        public int getDepth() {
+            return depth;
+        }
+
+        public List<CommentNode> getReplies() {
+            return replies;
+        }
+    }
+
+    public static class CommentThreadPage {
+        private final List<CommentNode> threads;
+        private final int page;
+        private final int totalPages;
+        private final int totalThreads;
+
+        public CommentThreadPage(List<CommentNode> threads, int page, int totalPages, int totalThreads) {
+            this.threads = threads;
+            this.page = page;
+            this.totalPages = totalPages;
+            this.totalThreads = totalThreads;
+        }
+
+        public List<CommentNode> getThreads() {
+            return threads;
+        }
+
+        // 0 始まり
+        public int getPage() {
+            return page;
+        }
+
+        public int getTotalPages() {
+            return totalPages;
+        }
+
+        public int getTotalThreads() {
+            return totalThreads;
+        }
+
+        public boolean isHasPrevious() {
+            return page > 0;
+        }
+
+        public boolean isHasNext() {
+            return page + 1 < totalPages;
+        }
+    }
+
+    // コメントは詳細画面・検索結果カードに出るので、レビューの更新番号も進める（ETag が変わる）
+    @Transactional
     public void addComment(Review review, User user, String content, String university, String faculty, String department) {
         Comment c = new Comment(review, user, content, university, faculty, department);
         commentRepository.save(c);
+        repository.touch(review.getId());
+        searchIndex.markChanged();
     }
 
+    // 検索結果カード用：各レビューの先頭 limit 件のコメントをまとめて取得する
+    @Transactional(readOnly = true)
+    public Map<Integer, List<Comment>> getCommentPreviews(List<Review> reviews, int limit) {
+        Map<Integer, List<Comment>> previews = new LinkedHashMap<>();
+        if (reviews == null || reviews.isEmpty() || limit <= 0) {
+            return previews;
+        }
+
+        for (Review review : reviews) {
+            previews.put(review.getId(), new ArrayList<>());
+        }
+
+        List<Comment> comments = commentRepository.findPreviewsByReviewIds(previews.keySet(), limit);
+        for (Comment comment : comments) {
+            List<Comment> list = previews.get(comment.getReview().getId());
+            if (list != null) {
+                list.add(comment);
+            }
+        }
+        return previews;
+    }
+
+    @Transactional(readOnly = true)
     public Comment getCommentById(Long id) {
         return commentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Comment not found: " + id));
     }
 
+    @Transactional
     public void addReply(Review review, Comment parent, User user, String content, String university, String faculty, String department) {
         Comment c = new Comment(review, user, content, university, faculty, department);
         c.setParentComment(parent);
         commentRepository.save(c);
+        repository.touch(review.getId());
+        searchIndex.markChanged();
     }
 
     // =========================
     // 絞り込み用（授業名・教員名・ユーザー）
     // =========================
+    @Transactional(readOnly = true)
     public List<Review> getByCourseName(String courseName) {
         return repository.findByCourseName(courseName);
     }
 
+    @Transactional(readOnly = true)
     public List<Review> getByTeacherName(String teacherName) {
         return repository.findByTeacherName(teacherName);
     }
 
+    @Transactional(readOnly = true)
     public List<Review> getByUser(User user) {
         return repository.findByUser(user);
     }
-    public List<Review> getAll() {
-        return repository.findAll();
-    }
 
     public List<String> suggestUniversities(String query) {
-        if (query == null) {
+        if (query == null || query.isBlank()) {
             return List.of();
         }
-
-        String normalized = query.trim();
-        if (normalized.isEmpty()) {
-            return List.of();
-        }
-
-        String lowerQuery = normalized.toLowerCase(Locale.ROOT);
-        List<String> prefixMatches = passnaviSchoolNames.stream()
-                .filter(name -> name.toLowerCase(Locale.ROOT).startsWith(lowerQuery))
-                .limit(SUGGEST_LIMIT)
-                .toList();
-
-        if (!prefixMatches.isEmpty()) {
-            return prefixMatches;
-        }
-
-        return passnaviSchoolNames.stream()
-                .filter(name -> name.toLowerCase(Locale.ROOT).contains(lowerQuery))
-                .limit(SUGGEST_LIMIT)
-                .toList();
-    }
-
-    private List<String> loadPassnaviSchoolNames(ObjectMapper objectMapper) {
-        try {
-            ClassPathResource resource = new ClassPathResource("passnavi_schools.json");
-            return objectMapper.readValue(resource.getInputStream(), new TypeReference<List<String>>() {});
-        } catch (IOException e) {
-            throw new IllegalStateException("Failed to load passnavi_schools.json", e);
-        }
+        return universitySuggestIndex.suggest(query, SUGGEST_LIMIT);
     }
 
 }
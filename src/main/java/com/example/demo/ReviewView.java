@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+
+/**
+ * JSON API で返すレビュー（読み取り専用）。
+ * ReviewRepository のコンストラクタ式 JPQL で必要な列だけを読んで作るので、
+ * User エンティティ（パスワードのハッシュを含む）は読み込まないし、返さない。
+ */
+public class ReviewView {
+
+    private final Integer id;
+    private final String courseName;
+    private final String teacherName;
+    private final String university;
+    private final String testMethod;
+    private final String attendanceMethod;
+    private final double rating;
+    private final String comment;
+    private final LocalDateTime createdAt;
+    private final int likes;
+    private final String imagePath;
+    private final String displayPath;
+    private final String thumbnailPath;
+    private final Author author;
+
+    // JPQL の select new から呼ばれる（投稿者の列は left join なので null のことがある）
+    public ReviewView(Integer id, String courseName, String teacherName, String university,
+                      String testMethod, String attendanceMethod, double rating, String comment,
+                      LocalDateTime createdAt, int likes,
+                      String imagePath, String displayPath, String thumbnailPath,
+                      Long authorId, String authorNickname, String authorUniversity) {
+        this.id = id;
+        this.courseName = courseName;
+        this.teacherName = teacherName;
+        this.university = university;
+        this.testMethod = testMethod;
+        this.attendanceMethod = attendanceMethod;
+        this.rating = rating;
+        this.comment = comment;
+        this.createdAt = createdAt;
+        this.likes = likes;
+        this.imagePath = imagePath;
+        this.displayPath = displayPath;
+        this.thumbnailPath = thumbnailPath;
+        this.author = authorId == null ? null : new Author(authorId, authorNickname, authorUniversity);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getCourseName() {
+        return courseName;
+    }
+
+    public String getTeacherName() {
+        return teacherName;
+    }
+
+    public String getUniversity() {
+        return university;
+    }
+
+    public String getTestMethod() {
+        return testMethod;
+    }
+
+    public String getAttendanceMethod() {
+        return attendanceMethod;
+    }
+
+    public double getRating() {
+        return rating;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int getLikes() {
+        return likes;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    public String getDisplayPath() {
+        return displayPath;
+    }
+
+    public String getThumbnailPath() {
+        return thumbnailPath;
+    }
+
+    public Author getAuthor() {
+        return author;
+    }
+
+    // 投稿者（公開してよい項目だけ）
+    public static class Author {
+        private final Long id;
+        private final String nickname;
+        private final String university;
+
+        public Author(Long id, String nickname, String university) {
+            this.id = id;
+            this.nickname = nickname;
+            this.university = university;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getNickname() {
+            return nickname;
+        }
+
+        public String getUniversity() {
+            return university;
+        }
+    }
+}
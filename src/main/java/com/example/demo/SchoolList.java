@@ -0,0 +1,122 @@
+package com.example.demo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * 大学名サジェストの元になる学校名リストの読み込み。
+ * <p>
+ * 元データは passnavi_schools.json（約 170 KB）。ビルド時（process-classes）にこのクラスの main で
+ * passnavi_schools.bin（各名前の長さと、全員分の文字を UTF-16 で並べた形式）に変換しておき、起動時はそちらを読む。
+ * JSON の解析（Jackson）を起動の途中でしなくて済む。.bin が無いとき（IDE から直接起動したときなど）は JSON を読む。
+ */
+final class SchoolList {
+
+    static final String BINARY_RESOURCE = "passnavi_schools.bin";
+    static final String JSON_RESOURCE = "passnavi_schools.json";
+
+    // 形式が変わったら上げる（古い .bin は読まずに JSON へ戻る）
+    private static final int MAGIC = 0x50534C31; // "PSL1"
+
+    private SchoolList() {
+    }
+
+    static List<String> load(ObjectMapper objectMapper) {
+        ClassPathResource binary = new ClassPathResource(BINARY_RESOURCE);
+        if (binary.exists()) {
+            try (InputStream in = binary.getInputStream()) {
+                List<String> names = readBinary(in);
+                if (names != null) {
+                    return names;
+                }
+            } catch (IOException e) {
+                // 壊れていたら JSON から読み直す
+            }
+        }
+        try (InputStream in = new ClassPathResource(JSON_RESOURCE).getInputStream()) {
+            return readJson(objectMapper, in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load " + JSON_RESOURCE, e);
+        }
+    }
+
+    static List<String> readJson(ObjectMapper objectMapper, InputStream in) throws IOException {
+        return objectMapper.readValue(in, new TypeReference<List<String>>() {});
+    }
+
+    // 形式が違えば null
+    static List<String> readBinary(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            return null;
+        }
+        int count = data.readInt();
+        int totalChars = data.readInt();
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = data.readUnsignedShort();
+        }
+        // 全員分の文字をまとめて読み、UTF-16 のまま char[] に写す（1 文字ずつの UTF-8 の解釈をしない）
+        byte[] bytes = new byte[totalChars * 2];
+        data.readFully(bytes);
+        char[] chars = new char[totalChars];
+        ByteBuffer.wrap(bytes).asCharBuffer().get(chars);
+
+        List<String> names = new ArrayList<>(count);
+        int offset = 0;
+        for (int length : lengths) {
+            names.add(new String(chars, offset, length));
+            offset += length;
+        }
+        return names;
+    }
+
+    // 形式: MAGIC・件数・全体の文字数・各名前の文字数（2 バイトずつ）・全員分の文字（UTF-16BE）
+    // 日本語の名前は UTF-8 だと 1 文字 3 バイトになるので、UTF-16 の方が小さい
+    static void writeBinary(List<String> names, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(names.size());
+        data.writeInt(names.stream().mapToInt(String::length).sum());
+        for (String name : names) {
+            if (name.length() > 0xFFFF) {
+                throw new IllegalArgumentException("School name is too long: " + name.length());
+            }
+            data.writeShort(name.length());
+        }
+        for (String name : names) {
+            data.writeChars(name);
+        }
+        data.flush();
+    }
+
+    // ビルド時の変換: SchoolList <入力 JSON> <出力 .bin>（pom.xml の exec-maven-plugin から呼ぶ）
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: SchoolList <passnavi_schools.json> <passnavi_schools.bin>");
+        }
+        List<String> names;
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            names = readJson(new ObjectMapper(), in);
+        }
+        Path output = Path.of(args[1]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(output)) {
+            writeBinary(names, out);
+        }
+        System.out.println("Wrote " + names.size() + " school names to " + output + " (" + Files.size(output) + " bytes)");
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 検索用の文字列正規化と n-gram 分割（レビュー検索と大学名サジェストで共通）。
+ * 日本語は単語の区切りが無いので、形態素解析ではなく 2 文字ずつの bi-gram で索引する。
+ * カタカナをひらがなに寄せるのは大学名サジェストだけ（normalizeKana）。レビュー検索は DB の部分一致
+ * （インデックスが無いときのフォールバック）とかなの扱いを揃えるため寄せない。
+ */
+public final class SearchText {
+
+    public static final int GRAM_SIZE = 2;
+
+    private SearchText() {
+    }
+
+    // 全角英数・半角カナなどを NFKC で揃え、小文字化し、空白の連続を 1 つにまとめる
+    public static String normalize(String text) {
+        return normalize(text, false);
+    }
+
+    // normalize に加えて、カタカナをひらがなに寄せる（大学名サジェスト用）
+    public static String normalizeKana(String text) {
+        return normalize(text, true);
+    }
+
+    private static String normalize(String text, boolean foldKana) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder sb = new StringBuilder(folded.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(foldKana ? foldKana(c) : c);
+        }
+        return sb.toString();
+    }
+
+    // カタカナ（ァ〜ヶ）を対応するひらがなにする
+    static char foldKana(char c) {
+        if (c >= '\u30A1' && c <= '\u30F6') {
+            return (char) (c - 0x60);
+        }
+        return c;
+    }
+
+    // 正規化済みの文字列を bi-gram に分割する（GRAM_SIZE 未満の文字列は空）
+    public static Set<String> grams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+}
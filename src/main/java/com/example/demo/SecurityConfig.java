@@ -1,26 +1,64 @@
 package com.example.demo;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
 
 @Configuration
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     // CustomUserDetailsService は自動で注入される（今はここでは特に何もしないけどOK）
     private final CustomUserDetailsService userDetailsService;
 
-    public SecurityConfig(CustomUserDetailsService userDetailsService) {
+    // ステートレスセッション（app.session.*）。true ならログイン状態を HttpSession ではなく署名付き Cookie に持つ
+    private final boolean stateless;
+    private final String sessionSecret;
+    private final Duration sessionTtl;
+
+    public SecurityConfig(CustomUserDetailsService userDetailsService,
+                          @Value("${app.session.stateless:false}") boolean stateless,
+                          @Value("${app.session.secret:}") String sessionSecret,
+                          @Value("${app.session.ttl:8h}") Duration sessionTtl) {
         this.userDetailsService = userDetailsService;
+        this.stateless = stateless;
+        this.sessionSecret = sessionSecret;
+        this.sessionTtl = sessionTtl;
     }
 
-    // パスワードハッシュ用
+    // パスワードハッシュ用。計算は専用のスレッドプールで行い、strength は設定か起動時の計測で決める（app.password.*。
+    // 計測は開発用で、本番は strength を固定する）。
+    // ログインに成功したとき、保存済みのハッシュが今の strength より弱ければ CustomUserDetailsService が掛け直す
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingProperties properties, MeterRegistry registry) {
+        int strength;
+        if (properties.getStrength() != null) {
+            strength = properties.getStrength();
+        } else {
+            strength = OffloadingPasswordEncoder.calibrateBCryptStrength(properties.getTargetLatency(),
+                    properties.getMinStrength(), properties.getMaxStrength());
+            log.info("Calibrated BCrypt strength {} for a target of {} ms (set app.password.strength to pin it)",
+                    strength, properties.getTargetLatency().toMillis());
+        }
+        return new OffloadingPasswordEncoder(new BCryptPasswordEncoder(strength), properties.getThreads(),
+                properties.getQueueCapacity(), properties.getMaxWait(), registry);
     }
 
     // セキュリティ設定のメイン
@@ -34,13 +72,18 @@ public class SecurityConfig {
                         "/register",
                         "/login",
                         "/css/**",
-                        "/js/**"
+                        "/js/**",
+                        "/actuator/health"
                 ).permitAll()              // ここは誰でもOK
+                .requestMatchers(HttpMethod.POST, "/api/reviews/import").hasRole("ADMIN") // 一括取り込みは管理者だけ
+                .requestMatchers("/api/reviews/export").hasRole("ADMIN") // 全件エクスポートも管理者だけ
+                .requestMatchers("/actuator/**").hasRole("ADMIN") // メトリクス（URI ごとの件数・時間など）も管理者だけ
                 .anyRequest().authenticated() // それ以外はログイン必須
             )
             .formLogin(login -> login
                 .loginPage("/login")
                 .defaultSuccessUrl("/reviews", true)
+                .failureHandler(loginFailureHandler())
                 .permitAll()
             )
             .logout(logout -> logout
@@ -49,6 +92,35 @@ public class SecurityConfig {
                 .permitAll()
             );
 
+        if (stateless) {
+            // HttpSession を作らず、ログイン状態は Cookie の署名で確かめる（どのインスタンスでも、DB を引かずに）
+            http
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .securityContext(context -> context.securityContextRepository(
+                        new SignedCookieSecurityContextRepository(
+                                new SessionTokenCodec(sessionKey()), sessionTtl, Clock.systemUTC())));
+        }
+
         return http.build();
     }
+
+    // ハッシュ計算が混んでいて断ったときは、パスワード違いと分けて表示する
+    private static AuthenticationFailureHandler loginFailureHandler() {
+        ExceptionMappingAuthenticationFailureHandler handler = new ExceptionMappingAuthenticationFailureHandler();
+        handler.setExceptionMappings(Map.of(PasswordHashingBusyException.class.getName(), "/login?busy"));
+        handler.setDefaultFailureUrl("/login?error");
+        return handler;
+    }
+
+    // 複数インスタンスで同じ鍵を使うよう app.session.secret（32 バイト以上）を設定する。
+    // 無ければ起動ごとに乱数の鍵を作る（1 台だけで動かすとき用。再起動すると全員ログアウトになる）
+    private byte[] sessionKey() {
+        if (!sessionSecret.isEmpty()) {
+            return sessionSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("app.session.secret is not set; using a random key (sessions end on restart and are not shared between instances)");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * ステートレスセッションのトークン（Cookie の値）を作る・検証する。
+ * 中身は LoginUser の id・ロール・メールアドレス・ニックネーム・大学と有効期限で、HMAC-SHA256 の署名を付ける。
+ * <pre>
+ * base64url(version | id | expiresAt | role | email | nickname | university) "." base64url(HMAC)
+ * </pre>
+ * 鍵を共有していればどのインスタンスでも検証でき、DB もサーバー側の状態も使わない。
+ * 中身は暗号化していない（署名だけ）ので、見られて困るもの（パスワードのハッシュなど）は入れない。
+ */
+final class SessionTokenCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+
+    SessionTokenCodec(byte[] secret) {
+        if (secret.length < 32) {
+            throw new IllegalArgumentException("Session secret must be at least 32 bytes");
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    String encode(LoginUser user, Instant expiresAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(user.getId());
+            out.writeLong(expiresAt.getEpochSecond());
+            out.writeUTF(role(user));
+            out.writeUTF(user.getEmail());
+            out.writeUTF(nullToEmpty(user.getNickname()));
+            out.writeUTF(nullToEmpty(user.getUniversity()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    // 署名が合わない・期限切れ・形式が違うときは null（どれもログインしていない扱い）
+    LoginUser decode(String token, Instant now) {
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // 署名の比較は一定時間で行う（どこまで一致したかを応答時間から推測させない）
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            long id = in.readLong();
+            long expiresAt = in.readLong();
+            if (now.getEpochSecond() >= expiresAt) {
+                return null;
+            }
+            String role = in.readUTF();
+            String email = in.readUTF();
+            String nickname = in.readUTF();
+            String university = in.readUTF();
+            // パスワードはトークンに入れないので空。ログイン後のリクエストではパスワードを使わない
+            return new LoginUser(id, email, "", role, emptyToNull(nickname), emptyToNull(university));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String role(LoginUser user) {
+        return user.getAuthorities().iterator().next().getAuthority();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
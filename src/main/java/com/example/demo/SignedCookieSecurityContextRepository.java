@@ -0,0 +1,118 @@
+package com.example.demo;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Duration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * ログイン状態を HttpSession ではなく署名付き Cookie（SessionTokenCodec）に持たせる SecurityContextRepository。
+ * <ul>
+ *   <li>ログイン成功時に Cookie を発行し、ログアウト時（空の SecurityContext の保存）に消す</li>
+ *   <li>各リクエストでは Cookie の署名と期限だけを確かめ、DB は引かない</li>
+ * </ul>
+ * 有効期限（app.session.ttl）はログイン時から数える固定の期限で、使っても延びない。
+ * サーバー側に状態が無いので、ログアウト前に盗まれた Cookie や、ロール・ニックネームの変更は期限まで取り消せない。
+ */
+class SignedCookieSecurityContextRepository implements SecurityContextRepository {
+
+    static final String COOKIE_NAME = "UNIPASS_SESSION";
+
+    private final SecurityContextHolderStrategy strategy = SecurityContextHolder.getContextHolderStrategy();
+    private final SessionTokenCodec codec;
+    private final Duration ttl;
+    private final Clock clock;
+
+    SignedCookieSecurityContextRepository(SessionTokenCodec codec, Duration ttl, Clock clock) {
+        this.codec = codec;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    // 旧 API（インターフェースが抽象メソッドのまま残しているので実装は要る）。
+    // SecurityContextHolderFilter は loadDeferredContext しか呼ばない
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder holder) {
+        return readContext(holder.getRequest());
+    }
+
+    @Override
+    public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+        // 認証が要らないリクエスト（静的ファイルなど）では署名を検証しないよう、最初に使われるまで読まない
+        return new DeferredSecurityContext() {
+            private SecurityContext context;
+
+            @Override
+            public SecurityContext get() {
+                if (context == null) {
+                    context = readContext(request);
+                }
+                return context;
+            }
+
+            @Override
+            public boolean isGenerated() {
+                return get().getAuthentication() == null;
+            }
+        };
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication auth = context.getAuthentication();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof LoginUser user) {
+            writeCookie(request, response, codec.encode(user, clock.instant().plus(ttl)), (int) ttl.toSeconds());
+        } else if (containsContext(request)) {
+            writeCookie(request, response, "", 0);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return token(request) != null;
+    }
+
+    private SecurityContext readContext(HttpServletRequest request) {
+        SecurityContext context = strategy.createEmptyContext();
+        String token = token(request);
+        LoginUser user = token == null ? null : codec.decode(token, clock.instant());
+        if (user != null) {
+            context.setAuthentication(
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+        }
+        return context;
+    }
+
+    private static String token(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * DataSource を包んで、Statement の execute 系メソッドの呼び出しを SqlStatementCounter に記録する。
+ * Hibernate・JdbcTemplate のどちらから来た SQL も数えられるよう、JDBC の層で数える。
+ */
+@Component
+public class SqlCountingDataSourcePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // 他の DataSource に処理を渡すだけのもの（レプリカ振り分けの LazyConnectionDataSourceProxy）は、
+        // 渡した先で数えるので包まない（包むと 1 件の SQL を 2 回数える）
+        if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())
+                && !(bean instanceof DelegatingDataSource)) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                return result instanceof Connection connection ? wrapConnection(connection) : result;
+            });
+        }
+        return bean;
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return (Connection) proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement なら PreparedStatement、prepareCall なら CallableStatement として包む
+                return wrapStatement(method.getReturnType(), statement);
+            }
+            return result;
+        });
+    }
+
+    private static Object wrapStatement(Class<?> type, Statement statement) {
+        return proxy(type, statement, (target, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                SqlStatementCounter.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private interface Handler {
+        Object handle(Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static Object proxy(Class<?> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.handle(target, method, args);
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo;
+
+/**
+ * 1 リクエストの間に実行した SQL の件数と時間をスレッドごとに数える。
+ * RequestMetricsFilter が start / stop し、SqlCountingDataSourcePostProcessor が record する。
+ */
+final class SqlStatementCounter {
+
+    private static final ThreadLocal<Stats> CURRENT = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    static void start() {
+        CURRENT.set(new Stats());
+    }
+
+    static Stats stop() {
+        Stats stats = CURRENT.get();
+        CURRENT.remove();
+        return stats != null ? stats : new Stats();
+    }
+
+    // リクエストの外（起動時の索引構築など）で実行した SQL は数えない
+    static void record(long nanos) {
+        Stats stats = CURRENT.get();
+        if (stats != null) {
+            stats.count++;
+            stats.nanos += nanos;
+        }
+    }
+
+    static final class Stats {
+        private int count;
+        private long nanos;
+
+        int getCount() {
+            return count;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
+    }
+}
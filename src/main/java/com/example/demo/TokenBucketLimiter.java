@@ -0,0 +1,116 @@
+package com.example.demo;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * キーごとのトークンバケット。バケットには capacity 個までトークンが貯まり、1 秒に refillPerSecond 個ずつ戻る。
+ * 1 回の操作でトークンを 1 個使い、無ければ断る。
+ * <p>
+ * キーをハッシュで stripes 個の区画に分け、区画ごとにロックする（ロックストライピング）。
+ * 違うキーどうしはほとんど同じロックを取り合わず、1 回の判定はハッシュ表を 1 回引くだけで済む。
+ */
+final class TokenBucketLimiter {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    TokenBucketLimiter(int capacity, double refillPerSecond, int stripes) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity must be >= 1 and refillPerSecond > 0");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+
+        // 区画の数は 2 のべき乗に切り上げ、剰余ではなくマスクで区画を選ぶ
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = this.stripes.length - 1;
+    }
+
+    boolean tryAcquire(long key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    // now はテストで時計を進めるための引数（普段は System.nanoTime()）
+    boolean tryAcquire(long key, long now) {
+        Stripe stripe = stripes[index(key)];
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.refill(now, capacity, refillPerNano);
+            }
+            if (bucket.tokens < 1) {
+                return false;
+            }
+            bucket.tokens -= 1;
+            return true;
+        }
+    }
+
+    // しばらく使われず満タンに戻ったバケットを捨てる（次に来たら満タンで作り直すのと同じなので挙動は変わらない）
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Map.Entry<Long, Bucket>> it = stripe.buckets.entrySet().iterator();
+                while (it.hasNext()) {
+                    Bucket bucket = it.next().getValue();
+                    bucket.refill(now, capacity, refillPerNano);
+                    if (bucket.tokens >= capacity) {
+                        it.remove();
+                        evicted++;
+                    }
+                }
+            }
+        }
+        return evicted;
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.buckets.size();
+            }
+        }
+        return size;
+    }
+
+    // 連番の id が同じ区画に偏らないよう、上位ビットを混ぜてから区画を選ぶ
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static final class Stripe {
+        final Map<Long, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long updatedAt;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.updatedAt = now;
+        }
+
+        void refill(long now, double capacity, double refillPerNano) {
+            long elapsed = now - updatedAt;
+            if (elapsed > 0) {
+                tokens = Math.min(capacity, tokens + elapsed * refillPerNano);
+                updatedAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 大学名サジェスト用の読み取り専用インデックス。起動時に 1 回だけ作る。
+ * <ul>
+ *   <li>前方一致: 正規化済みの名前をソートした配列を二分探索する</li>
+ *   <li>部分一致: 1 文字・2 文字の n-gram → 名前番号（元の並び順）の転置リスト</li>
+ * </ul>
+ * n-gram は char を int に詰めたキーで引くので、検索時に部分文字列を作らない。
+ * 結果は元リスト（passnavi_schools.json）の並び順を保つ。
+ */
+public final class UniversitySuggestIndex {
+
+    private final String[] names;
+    private final String[] normalized;
+
+    // 前方一致用：正規化済みの名前を辞書順に並べたものと、その名前番号
+    private final String[] sortedKeys;
+    private final int[] sortedOrder;
+
+    // 部分一致用：n-gram キー（昇順）と、それを含む名前番号の昇順リスト
+    private final int[] gramKeys;
+    private final int[][] gramPostings;
+
+    private UniversitySuggestIndex(List<String> source) {
+        int n = source.size();
+        this.names = source.toArray(new String[0]);
+        this.normalized = new String[n];
+        for (int i = 0; i < n; i++) {
+            normalized[i] = SearchText.normalizeKana(names[i]);
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> normalized[a].compareTo(normalized[b]));
+        this.sortedKeys = new String[n];
+        this.sortedOrder = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedOrder[i] = order[i];
+            sortedKeys[i] = normalized[order[i]];
+        }
+
+        Map<Integer, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            String name = normalized[i];
+            for (int p = 0; p < name.length(); p++) {
+                addPosting(postings, unigramKey(name.charAt(p)), i);
+                if (p + 1 < name.length()) {
+                    addPosting(postings, bigramKey(name.charAt(p), name.charAt(p + 1)), i);
+                }
+            }
+        }
+        this.gramKeys = postings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        this.gramPostings = new int[gramKeys.length][];
+        for (int k = 0; k < gramKeys.length; k++) {
+            gramPostings[k] = postings.get(gramKeys[k]).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static UniversitySuggestIndex of(List<String> names) {
+        return new UniversitySuggestIndex(names);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    // 前方一致を優先し、無ければ部分一致を返す（どちらも元の並び順で最大 limit 件）
+    public List<String> suggest(String query, int limit) {
+        String q = SearchText.normalizeKana(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        int[] hits = new int[limit];
+        int count = prefixMatches(q, hits);
+        if (count == 0) {
+            count = substringMatches(q, hits);
+        }
+
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(names[hits[i]]);
+        }
+        return result;
+    }
+
+    // ソート済み配列の [lower, upper) が前方一致の範囲。その中から名前番号の小さい順に hits を埋める
+    private int prefixMatches(String q, int[] hits) {
+        int lo = 0;
+        int hi = sortedKeys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedKeys[mid].compareTo(q) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        int count = 0;
+        for (int i = lo; i < sortedKeys.length && sortedKeys[i].startsWith(q); i++) {
+            count = insertSmallest(hits, count, sortedOrder[i]);
+        }
+        return count;
+    }
+
+    // 一番短い転置リストを先頭から見て、他の n-gram も含み、本文にも含まれるものを拾う
+    private int substringMatches(String q, int[] hits) {
+        int[] shortest = null;
+        if (q.length() == 1) {
+            shortest = postings(unigramKey(q.charAt(0)));
+        } else {
+            for (int p = 0; p + 1 < q.length(); p++) {
+                int[] list = postings(bigramKey(q.charAt(p), q.charAt(p + 1)));
+                if (list == null) {
+                    return 0;
+                }
+                if (shortest == null || list.length < shortest.length) {
+                    shortest = list;
+                }
+            }
+        }
+        if (shortest == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int i = 0; i < shortest.length && count < hits.length; i++) {
+            int nameIndex = shortest[i];
+            if (normalized[nameIndex].contains(q)) {
+                hits[count++] = nameIndex;
+            }
+        }
+        return count;
+    }
+
+    private int[] postings(int key) {
+        int k = Arrays.binarySearch(gramKeys, key);
+        return k >= 0 ? gramPostings[k] : null;
+    }
+
+    // hits[0..count) を昇順に保ったまま、小さい方から hits.length 件だけ残す
+    private static int insertSmallest(int[] hits, int count, int value) {
+        if (count == hits.length && value >= hits[count - 1]) {
+            return count;
+        }
+        int pos = count == hits.length ? count - 1 : count;
+        while (pos > 0 && hits[pos - 1] > value) {
+            hits[pos] = hits[pos - 1];
+            pos--;
+        }
+        hits[pos] = value;
+        return Math.min(count + 1, hits.length);
+    }
+
+    private static void addPosting(Map<Integer, List<Integer>> postings, int key, int nameIndex) {
+        List<Integer> list = postings.computeIfAbsent(key, k -> new ArrayList<>());
+        if (list.isEmpty() || list.get(list.size() - 1) != nameIndex) {
+            list.add(nameIndex);
+        }
+    }
+
+    // 1 文字キーは 0〜0xFFFF、2 文字キーは上位 16bit に 1 文字目（正規化後は 0 にならない）
+    private static int unigramKey(char c) {
+        return c;
+    }
+
+    private static int bigramKey(char first, char second) {
+        return (first << 16) | second;
+    }
+}
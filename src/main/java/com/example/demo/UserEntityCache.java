@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * users の行を id で引くための小さな LRU キャッシュ。
+ * レビューやコメントの投稿者として User エンティティそのものが要るときに使う
+ * （id・ニックネーム・大学だけで足りるときは LoginUser を使う）。
+ */
+@Component
+public class UserEntityCache {
+
+    private final UserRepository repository;
+    private final Map<Long, User> cache;
+
+    public UserEntityCache(UserRepository repository,
+                           @Value("${app.user-cache.max-size:1000}") int maxSize) {
+        this.repository = repository;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, User> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public User get(Long id) {
+        synchronized (cache) {
+            User cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        User user = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found: " + id));
+        synchronized (cache) {
+            cache.put(id, user);
+        }
+        return user;
+    }
+
+    // users の行を書き換えたら呼ぶ
+    public void invalidate(Long id) {
+        synchronized (cache) {
+            cache.remove(id);
+        }
+    }
+}
@@ -1,16 +1,37 @@
 package com.example.demo;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final String uploadDir;
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    public WebConfig(@Value("${app.images.dir:uploads}") String uploadDir, RateLimitInterceptor rateLimitInterceptor) {
+        this.uploadDir = uploadDir;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    // 書き込み系（@RateLimited）の流量制限
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // プロジェクト直下の "uploads" フォルダを /uploads/** で配信
+        // ファイル名は UUID で上書きされないので、ブラウザに長くキャッシュさせる
         registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
+                .addResourceLocations(Paths.get(uploadDir).toAbsolutePath().normalize().toUri().toString())
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePrivate());
     }
 }
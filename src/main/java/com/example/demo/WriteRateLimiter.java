@@ -0,0 +1,58 @@
+package com.example.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 書き込みの流量制限。ユーザーごと・レビューごとのトークンバケット（TokenBucketLimiter）を持つ。
+ * 判定はメモリ上だけで終わるので、断るときに DB の接続を使わない。
+ * インスタンスごとの制限なので、複数台で動かすときは台数倍まで通る。
+ */
+@Component
+public class WriteRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteRateLimiter.class);
+
+    private final boolean enabled;
+    private final TokenBucketLimiter perUser;
+    private final TokenBucketLimiter perReview;
+    private final long retryAfterSeconds;
+
+    public WriteRateLimiter(RateLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        RateLimitProperties.Bucket user = properties.getPerUser();
+        RateLimitProperties.Bucket review = properties.getPerReview();
+        this.perUser = new TokenBucketLimiter(user.getCapacity(), user.getRefillPerSecond(), properties.getStripes());
+        this.perReview = new TokenBucketLimiter(review.getCapacity(), review.getRefillPerSecond(), properties.getStripes());
+        // 遅い方のバケットに 1 個戻るまでの秒数
+        double slowest = Math.min(user.getRefillPerSecond(), review.getRefillPerSecond());
+        this.retryAfterSeconds = Math.max(1, (long) Math.ceil(1 / slowest));
+    }
+
+    // reviewId が null のとき（新規投稿など）はユーザーの分だけ見る
+    public boolean tryAcquire(long userKey, Integer reviewId) {
+        if (!enabled) {
+            return true;
+        }
+        if (!perUser.tryAcquire(userKey)) {
+            return false;
+        }
+        return reviewId == null || perReview.tryAcquire(reviewId);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    // 満タンに戻ったバケットを定期的に捨てて、来なくなったユーザー・レビューの分のメモリを返す
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval:PT1M}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int evicted = perUser.evictIdle(now) + perReview.evictIdle(now);
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate-limit buckets", evicted);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+-- ddl-auto=update で作っていたときのスキーマ（既存の DB は baseline-on-migrate でこの版として扱う）
+-- MySQL と H2（MODE=MySQL）の両方で流せる書き方にしている
+
+create table users (
+    id bigint not null auto_increment,
+    nickname varchar(40),
+    email varchar(255) not null,
+    password varchar(255) not null,
+    role varchar(255) not null,
+    university varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table review (
+    id integer not null auto_increment,
+    likes integer not null,
+    rating double not null,
+    created_at datetime(6),
+    user_id bigint,
+    attendance_method varchar(255),
+    comment varchar(255),
+    course_name varchar(255),
+    image_path varchar(255),
+    teacher_name varchar(255),
+    test_method varchar(255),
+    university varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table comment (
+    id bigint not null auto_increment,
+    review_id integer,
+    parent_comment_id bigint,
+    user_id bigint,
+    created_at datetime(6),
+    department varchar(100) not null,
+    faculty varchar(100) not null,
+    university varchar(100) not null,
+    content varchar(500) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table users add constraint UK_6dotkott2kjsp8vw4d0m25fb7 unique (email);
+alter table comment add constraint FKhvh0e2ybgg16bpu229a5teje7 foreign key (parent_comment_id) references comment (id);
+alter table comment add constraint FKnf4ni761w29tmtgdxymmgvg8r foreign key (review_id) references review (id);
+alter table comment add constraint FKqm52p1v3o13hy268he0wcngr5 foreign key (user_id) references users (id);
+alter table review add constraint FK6cpw2nlklblpvc7hyt7ko6v3e foreign key (user_id) references users (id);
@@ -0,0 +1,25 @@
+-- 検索・詳細画面のクエリが使う索引
+-- （MySQL は外部キー用に自動で作った索引を、同じ列で始まる索引ができた時点で自分で消す）
+
+-- 授業名・教員名を小文字にした生成列。大文字小文字を無視した検索を関数を通さずに索引で引く
+-- （STORED を付けない仮想列にしているのは H2 がその構文だけ受け付けるため。MySQL は仮想列にも索引を張れる）
+alter table review add column course_name_lower varchar(255) generated always as (lower(course_name));
+alter table review add column teacher_name_lower varchar(255) generated always as (lower(teacher_name));
+
+-- 並び替え（評価順・いいね順のキーセットページング）をソートなしで読む
+create index idx_review_rating_id on review (rating desc, id desc);
+create index idx_review_likes_id on review (likes desc, id desc);
+
+-- 授業名・教員名での絞り込み＋評価順。評価サマリーはこの索引だけで集計できる
+create index idx_review_course_rating on review (course_name_lower, rating desc, id desc);
+create index idx_review_teacher_rating on review (teacher_name_lower, rating desc, id desc);
+
+-- マイページ（投稿者のレビュー）
+create index idx_review_user on review (user_id, id);
+
+-- 詳細画面（レビューの全コメントを id 順）と、検索結果カードの先頭コメント（トップレベルだけ）
+create index idx_comment_review on comment (review_id, id);
+create index idx_comment_review_parent on comment (review_id, parent_comment_id, id);
+-- 返信の一覧・削除時のカスケード
+create index idx_comment_parent on comment (parent_comment_id, id);
+create index idx_comment_user on comment (user_id);
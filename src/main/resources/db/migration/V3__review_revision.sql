@@ -0,0 +1,8 @@
+-- 条件付き GET（ETag・Last-Modified）用に、レビューの更新番号と更新日時を持つ
+-- 編集・いいね・コメントのたびに revision を 1 増やし、updated_at をその日時にする
+alter table review add column revision bigint not null default 0;
+alter table review add column updated_at datetime(6) not null default current_timestamp(6);
+update review set updated_at = created_at where created_at is not null;
+
+-- 検索結果の ETag に使う最終更新日時（max(updated_at)）を索引の端だけで引く
+create index idx_review_updated_at on review (updated_at);
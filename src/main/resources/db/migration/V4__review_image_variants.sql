@@ -0,0 +1,4 @@
+-- アップロード画像を非同期で縮小した表示用・サムネイル用のパス（処理が終わるまでは null で、元画像を表示する）
+-- V1 の時点のスキーマには無かった列なので、baseline-on-migrate で V1 扱いにした既存の DB にもここで足す
+alter table review add column display_path varchar(255);
+alter table review add column thumbnail_path varchar(255);
@@ -0,0 +1,10 @@
+-- 検索結果の ETag に使う、レビュー全体の版数（1 行だけ）。
+-- レビューの追加・編集・削除・いいね・コメント・画像の反映のたびに同じトランザクションで 1 増やす。
+-- count(*) と max(updated_at) を毎回集計する代わりに、この 1 行を主キーで読むだけにする
+create table review_collection_version (
+    id integer not null,
+    version bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into review_collection_version (id, version) values (1, 0);
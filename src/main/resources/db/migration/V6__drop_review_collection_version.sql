@@ -0,0 +1,3 @@
+-- 検索結果の ETag は各インスタンスのメモリ上の索引・集計の世代から作るようにしたので、版数の 1 行は使わない
+-- （すべての書き込みがこの 1 行をロックして直列になっていた）
+drop table review_collection_version;
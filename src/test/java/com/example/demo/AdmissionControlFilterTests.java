@@ -0,0 +1,108 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class AdmissionControlFilterTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void requestsBeyondTheLimitWaitAndAreRejectedWhenNoPermitFrees() throws Exception {
+		AdmissionControlFilter filter = new AdmissionControlFilter(registry, true, 1, Duration.ofMillis(100));
+
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<MockHttpServletResponse> slow = CompletableFuture.supplyAsync(() -> {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			try {
+				filter.doFilter(new MockHttpServletRequest("GET", "/reviews/search"), response, (req, res) -> {
+					entered.countDown();
+					try {
+						release.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return response;
+		});
+		assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+		// 枠が埋まっている間は待ったうえで 503
+		MockHttpServletResponse rejected = get(filter, "/reviews/search");
+		assertThat(rejected.getStatus()).isEqualTo(503);
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(registry.get("app.admission.rejected").counter().count()).isEqualTo(1.0);
+		assertThat(registry.get("app.admission.active").gauge().value()).isEqualTo(1.0);
+
+		// 静的ファイルは数えない
+		assertThat(get(filter, "/css/style.css").getStatus()).isEqualTo(200);
+
+		release.countDown();
+		assertThat(slow.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(200);
+		assertThat(get(filter, "/reviews/search").getStatus()).isEqualTo(200);
+		assertThat(registry.get("app.admission.active").gauge().value()).isEqualTo(0.0);
+	}
+
+	@Test
+	void asyncRequestsHoldTheirPermitUntilTheyComplete() throws Exception {
+		AdmissionControlFilter filter = new AdmissionControlFilter(registry, true, 1, Duration.ofMillis(50));
+
+		// StreamingResponseBody のように、フィルターを抜けた後も非同期で応答を書き続けるリクエスト
+		MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/reviews/export");
+		export.setAsyncSupported(true);
+		MockHttpServletResponse exportResponse = new MockHttpServletResponse();
+		filter.doFilter(export, exportResponse, (req, res) -> req.startAsync());
+
+		assertThat(registry.get("app.admission.active").gauge().value()).isEqualTo(1.0);
+		assertThat(get(filter, "/reviews/search").getStatus()).isEqualTo(503);
+
+		((MockAsyncContext) export.getAsyncContext()).complete();
+		assertThat(registry.get("app.admission.active").gauge().value()).isEqualTo(0.0);
+		assertThat(get(filter, "/reviews/search").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void disabledFilterLetsEverythingThrough() throws Exception {
+		AdmissionControlFilter filter = new AdmissionControlFilter(registry, false, 1, Duration.ZERO);
+
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> {
+			try {
+				filter.doFilter(new MockHttpServletRequest("GET", "/reviews"), new MockHttpServletResponse(),
+						(req, res) -> {
+							try {
+								release.await(5, TimeUnit.SECONDS);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						});
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		assertThat(get(filter, "/reviews").getStatus()).isEqualTo(200);
+		release.countDown();
+		slow.get(5, TimeUnit.SECONDS);
+	}
+
+	private static MockHttpServletResponse get(AdmissionControlFilter filter, String uri) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", uri), response, new MockFilterChain());
+		return response;
+	}
+}
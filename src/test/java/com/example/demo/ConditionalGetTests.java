@@ -0,0 +1,177 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalGetTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@Autowired
+	private ReviewSearchDataRefresher refresher;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User author;
+	private LoginUser viewer;
+	private Review review;
+
+	@BeforeEach
+	void setUp() {
+		author = userRepository.save(new User("etag@example.com", "x", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		viewer = LoginUser.of(author);
+		review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		review.setUser(author);
+		service.addReview(review);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		commentRepository.deleteAll();
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void apiReviewIsRevalidatedAndChangesWithLikes() throws Exception {
+		String etag = mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(viewer)))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+				.andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).startsWith("W/\"");
+
+		mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(viewer))
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		service.like(review.getId());
+
+		String liked = mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(viewer))
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(liked).isNotEqualTo(etag);
+	}
+
+	@Test
+	void detailPageChangesWithEditsAndComments() throws Exception {
+		String etag = detailEtag();
+		mockMvc.perform(get("/reviews/{id}", review.getId()).with(user(viewer))
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		// コメントが付くと変わる
+		service.addComment(review, author, "参考になりました", "大学", "学部", "学科");
+		String commented = detailEtag();
+		assertThat(commented).isNotEqualTo(etag);
+
+		// 編集でも変わる
+		Review loaded = service.getById(review.getId());
+		loaded.setComment("とても良い");
+		service.save(loaded);
+		assertThat(detailEtag()).isNotEqualTo(commented);
+
+		// 表示が変わるので、見ている人・コメントのページでも別の版になる
+		User other = userRepository.save(new User("other@example.com", "x", "ROLE_STUDENT", "別の人", "テスト大学"));
+		mockMvc.perform(get("/reviews/{id}", review.getId()).with(user(LoginUser.of(other)))
+						.header(HttpHeaders.IF_NONE_MATCH, detailEtag()))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void searchPageChangesWhenAnyReviewChanges() throws Exception {
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+		String etag = searchEtag();
+		assertThat(etag).isNotNull();
+		mockMvc.perform(get("/reviews/search").param("keyword", "線形").with(user(viewer))
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		Review other = new Review("微分積分", "佐藤", "テスト大学", "レポート", "毎回", 3, "普通");
+		service.addReview(other);
+		String added = searchEtag();
+		assertThat(added).isNotEqualTo(etag);
+
+		// いいね・コメントでも変わる（コミット後に検索インデックスの世代が進む）
+		service.like(review.getId());
+		String liked = searchEtag();
+		assertThat(liked).isNotEqualTo(added);
+		service.addComment(review, author, "参考になりました", "大学", "学部", "学科");
+		String commented = searchEtag();
+		assertThat(commented).isNotEqualTo(liked);
+
+		service.deleteById(other.getId());
+		assertThat(searchEtag()).isNotEqualTo(commented);
+	}
+
+	@Test
+	void searchPageChangesOnceWritesFromOtherInstancesArePickedUp() throws Exception {
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+		String etag = searchEtag();
+
+		// 他のインスタンスでのいいね（このインスタンスの索引にはまだ入っていない）
+		jdbcTemplate.update("update review set likes = likes + 1, revision = revision + 1, updated_at = ? where id = ?",
+				Timestamp.valueOf(LocalDateTime.now()), review.getId());
+		refresher.refreshChanged();
+
+		mockMvc.perform(get("/reviews/search").param("keyword", "線形").with(user(viewer))
+						.header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+	}
+
+	private String detailEtag() throws Exception {
+		return mockMvc.perform(get("/reviews/{id}", review.getId()).with(user(viewer)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+
+	private String searchEtag() throws Exception {
+		return mockMvc.perform(get("/reviews/search").param("keyword", "線形").with(user(viewer)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+@SpringBootTest(properties = {
+		"app.images.dir=target/test-uploads",
+		"app.images.staging-dir=target/test-uploads-staging"
+})
+class ImageProcessingServiceTests {
+
+	@Autowired
+	private ImageProcessingService imageProcessing;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@AfterEach
+	void cleanUp() {
+		reviewRepository.deleteAll();
+	}
+
+	@Test
+	void stagedUploadIsProcessedInBackgroundIntoSizedVariants() throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_ARGB), "png", png);
+		MockMultipartFile upload = new MockMultipartFile("imageFile", "photo.PNG", "image/png", png.toByteArray());
+
+		Review review = new Review("画像付き", "先生", "テスト大学", "筆記", "毎回", 4, "c");
+		Path staged = imageProcessing.stage(upload);
+		service.addReview(review);
+		imageProcessing.submit(review.getId(), staged);
+
+		Review processed = awaitThumbnail(review.getId());
+		assertThat(processed.getImagePath()).endsWith(".png");
+		assertThat(Files.exists(staged)).isFalse();
+		assertThat(widthOf(processed.getDisplayPath())).isEqualTo(ImageProcessingService.DISPLAY_WIDTH);
+		assertThat(widthOf(processed.getThumbnailPath())).isEqualTo(ImageProcessingService.THUMBNAIL_WIDTH);
+	}
+
+	@Test
+	void unreadableUploadKeepsOriginalWithoutVariants() throws Exception {
+		MockMultipartFile upload = new MockMultipartFile("imageFile", "notes.jpg", "image/jpeg", "not an image".getBytes());
+
+		Review review = new Review("画像なし", "先生", "テスト大学", "筆記", "毎回", 4, "c");
+		Path staged = imageProcessing.stage(upload);
+		service.addReview(review);
+		imageProcessing.process(review.getId(), staged);
+
+		Review processed = service.getById(review.getId());
+		assertThat(processed.getImagePath()).endsWith(".jpg");
+		assertThat(processed.getThumbnailPath()).isNull();
+		assertThat(processed.getDisplayPath()).isNull();
+	}
+
+	@Test
+	void startupSweepProcessesLeftoverStagedImagesAndDropsUnclaimedOnes() throws Exception {
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_RGB), "png", png);
+
+		Review review = new Review("停止で残った画像", "先生", "テスト大学", "筆記", "毎回", 4, "c");
+		service.addReview(review);
+		// 前回の停止で処理されずに残ったファイル（レビューに紐づけ済み）と、保存前に失敗したアップロードの残り
+		Path stagingDir = Paths.get("target/test-uploads-staging");
+		Files.createDirectories(stagingDir);
+		Path leftover = stagingDir.resolve(review.getId() + "_leftover.png");
+		Files.write(leftover, png.toByteArray());
+		Path abandoned = stagingDir.resolve("abandoned.png");
+		Files.write(abandoned, png.toByteArray());
+		Files.setLastModifiedTime(abandoned, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+
+		imageProcessing.sweepStaging();
+
+		Review processed = awaitThumbnail(review.getId());
+		assertThat(processed.getImagePath()).isEqualTo("/uploads/" + leftover.getFileName());
+		assertThat(widthOf(processed.getThumbnailPath())).isEqualTo(ImageProcessingService.THUMBNAIL_WIDTH);
+		assertThat(Files.exists(leftover)).isFalse();
+		assertThat(Files.exists(abandoned)).isFalse();
+	}
+
+	private Review awaitThumbnail(Integer id) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		while (System.nanoTime() < deadline) {
+			Review review = service.getById(id);
+			if (review.getThumbnailPath() != null) {
+				return review;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("image was not processed in time");
+	}
+
+	private static int widthOf(String publicPath) throws Exception {
+		Path file = Paths.get("target/test-uploads").resolve(publicPath.substring("/uploads/".length()));
+		return ImageIO.read(file.toFile()).getWidth();
+	}
+
+}
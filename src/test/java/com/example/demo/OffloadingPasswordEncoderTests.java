@@ -0,0 +1,107 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class OffloadingPasswordEncoderTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void hashesOnTheDedicatedThreadsAndUpgradesWeakerHashes() {
+		try (OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(new BCryptPasswordEncoder(5), 1, 4,
+				Duration.ofSeconds(5), registry)) {
+			String hash = encoder.encode("secret");
+			assertThat(hash).startsWith("$2a$05$");
+			assertThat(encoder.matches("secret", hash)).isTrue();
+			assertThat(encoder.matches("wrong", hash)).isFalse();
+
+			assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+			assertThat(encoder.upgradeEncoding(hash)).isFalse();
+		}
+	}
+
+	@Test
+	void rejectsWhenTheQueueIsFullOrTheWaitIsTooLong() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try (OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(blockingEncoder(entered, release), 1, 1,
+				Duration.ofMillis(300), registry)) {
+			// 1 件目がスレッドを占有し、2 件目が待ち行列に入る
+			Future<String> running = callers.submit(() -> encoder.encode("first"));
+			assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+			Future<Boolean> queued = callers.submit(() -> encoder.matches("second", "x"));
+			waitUntilQueued();
+
+			// 3 件目は待たせずに断る
+			assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"));
+			assertThat(registry.get("app.password.queued").gauge().value()).isEqualTo(1.0);
+
+			// 計算中・順番待ちの 2 件も max-wait を過ぎたら断る
+			assertThat(running).failsWithin(5, TimeUnit.SECONDS)
+					.withThrowableOfType(ExecutionException.class)
+					.withCauseInstanceOf(PasswordHashingBusyException.class);
+			assertThat(queued).failsWithin(5, TimeUnit.SECONDS)
+					.withThrowableOfType(ExecutionException.class)
+					.withCauseInstanceOf(PasswordHashingBusyException.class);
+			assertThat(registry.get("app.password.rejected").counter().count()).isEqualTo(3.0);
+		} finally {
+			release.countDown();
+			callers.shutdownNow();
+		}
+	}
+
+	@Test
+	void calibrationStaysWithinTheConfiguredRange() {
+		assertThat(OffloadingPasswordEncoder.calibrateBCryptStrength(Duration.ZERO, 4, 6)).isEqualTo(4);
+		assertThat(OffloadingPasswordEncoder.calibrateBCryptStrength(Duration.ofHours(1), 4, 6)).isEqualTo(6);
+	}
+
+	private void waitUntilQueued() throws InterruptedException {
+		for (int i = 0; i < 100 && registry.get("app.password.queued").gauge().value() < 1; i++) {
+			Thread.sleep(10);
+		}
+	}
+
+	// release されるまで返らない（スレッドを占有し続ける）PasswordEncoder
+	private static PasswordEncoder blockingEncoder(CountDownLatch entered, CountDownLatch release) {
+		return new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				entered.countDown();
+				// BCrypt と同じく、割り込まれても計算をやめない
+				boolean interrupted = false;
+				while (true) {
+					try {
+						release.await(5, TimeUnit.SECONDS);
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return rawPassword.toString().equals(encodedPassword);
+			}
+		};
+	}
+}
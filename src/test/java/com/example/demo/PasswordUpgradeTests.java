@@ -0,0 +1,58 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+// テストの既定（strength=4）より強くした設定で、古い strength のハッシュを持つユーザーがログインする
+@SpringBootTest(properties = "app.password.strength=5")
+@AutoConfigureMockMvc
+class PasswordUpgradeTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.save(new User("upgrade@example.com", new BCryptPasswordEncoder(4).encode("secret"),
+				"ROLE_STUDENT", "古いハッシュ", "テスト大学"));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void successfulLoginRehashesWithTheCurrentStrength() throws Exception {
+		mockMvc.perform(formLogin("/login").user("upgrade@example.com").password("wrong"))
+				.andExpect(redirectedUrl("/login?error"));
+		assertThat(storedHash()).startsWith("$2a$04$");
+
+		mockMvc.perform(formLogin("/login").user("upgrade@example.com").password("secret"))
+				.andExpect(redirectedUrl("/reviews"));
+		String upgraded = storedHash();
+		assertThat(upgraded).startsWith("$2a$05$");
+		assertThat(new BCryptPasswordEncoder().matches("secret", upgraded)).isTrue();
+
+		// 掛け直した後のハッシュでもログインできる
+		mockMvc.perform(formLogin("/login").user("upgrade@example.com").password("secret"))
+				.andExpect(redirectedUrl("/reviews"));
+	}
+
+	private String storedHash() {
+		return userRepository.findByEmail("upgrade@example.com").orElseThrow().getPassword();
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.demo;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest(properties = {
+		"app.rate-limit.per-user.capacity=3",
+		"app.rate-limit.per-user.refill-per-second=0.01",
+		"app.rate-limit.per-review.capacity=5",
+		"app.rate-limit.per-review.refill-per-second=0.01"})
+@AutoConfigureMockMvc
+class RateLimitTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	private Review review;
+	private User first;
+	private User second;
+
+	@BeforeEach
+	void setUp() {
+		first = userRepository.save(new User("limit1@example.com", "x", "ROLE_STUDENT", "一人目", "テスト大学"));
+		second = userRepository.save(new User("limit2@example.com", "x", "ROLE_STUDENT", "二人目", "テスト大学"));
+		review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		review.setUser(first);
+		service.addReview(review);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void likesBeyondTheUserAndReviewLimitsAreRejectedWith429() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			like(first).andExpect(status().is3xxRedirection());
+		}
+		like(first).andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "100"));
+
+		// 別のユーザーは自分の枠で通るが、レビューの枠（5 回）を使い切ると断られる
+		like(second).andExpect(status().is3xxRedirection());
+		like(second).andExpect(status().is3xxRedirection());
+		like(second).andExpect(status().isTooManyRequests());
+
+		// 読み取りは制限しない
+		mockMvc.perform(get("/reviews/{id}", review.getId()).with(user(LoginUser.of(first))))
+				.andExpect(status().isOk());
+	}
+
+	private ResultActions like(User user) throws Exception {
+		return mockMvc.perform(post("/reviews/{id}/like", review.getId()).with(user(LoginUser.of(user))));
+	}
+}
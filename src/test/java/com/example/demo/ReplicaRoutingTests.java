@@ -0,0 +1,134 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.http.Cookie;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+// プライマリはいつものテスト用 H2、レプリカは別の H2。レプリケーションの代わりに setUp でプライマリの行を写し、
+// その後プライマリだけを書き換えて「レプリカが遅れている」状態を作る
+@SpringBootTest(properties = {
+		"app.datasource.replica.url=" + ReplicaRoutingTests.REPLICA_URL,
+		"app.datasource.replica.hikari.maximum-pool-size=2",
+		"app.datasource.replica.read-your-writes-window=5s"})
+@AutoConfigureMockMvc
+class ReplicaRoutingTests {
+
+	static final String REPLICA_URL =
+			"jdbc:h2:mem:unipass-replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@Autowired
+	private JdbcTemplate primary;
+
+	private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+	private User author;
+	private Review review;
+
+	@BeforeEach
+	void setUp() {
+		Flyway.configure().dataSource(replica.getDataSource()).load().migrate();
+
+		author = userRepository.save(new User("replica@example.com", "x", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		review.setUser(author);
+		service.addReview(review);
+		replicate();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		replica.update("delete from review");
+		replica.update("delete from users");
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void readOnlyServiceCallsReadTheReplicaAndWritesGoToThePrimary() {
+		service.like(review.getId());
+
+		// 書き込みはプライマリだけに入り、レプリカはまだ前の版
+		assertThat(replica.queryForObject("select likes from review where id = ?", Integer.class, review.getId()))
+				.isZero();
+		assertThat(service.getStamp(review.getId()).getRevision()).isZero();
+		assertThat(service.getViewById(review.getId()).getLikes()).isZero();
+
+		// プライマリに固定すると自分の書き込みが見える
+		assertThat(ReplicaRoutingDataSource.pinToPrimary(() -> service.getViewById(review.getId()).getLikes()))
+				.isEqualTo(1);
+
+		// トランザクションの外（JdbcTemplate の直接呼び出し）はプライマリ
+		assertThat(primary.queryForObject("select likes from review where id = ?", Integer.class, review.getId()))
+				.isEqualTo(1);
+	}
+
+	@Test
+	void theWritersNextRequestsStayOnThePrimary() throws Exception {
+		Cookie pin = mockMvc.perform(post("/reviews/{id}/like", review.getId()).with(user(LoginUser.of(author))))
+				.andExpect(status().is3xxRedirection())
+				.andReturn().getResponse().getCookie(ReplicaPinFilter.COOKIE_NAME);
+		assertThat(pin).isNotNull();
+		assertThat(pin.getMaxAge()).isEqualTo(5);
+
+		mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(LoginUser.of(author))).cookie(pin))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.likes").value(1));
+
+		// 書いていない人はレプリカから読む
+		mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(LoginUser.of(author))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.likes").value(0));
+	}
+
+	// レプリケーションの代わりに、今のプライマリの行をレプリカへ写す
+	private void replicate() {
+		primary.query("select id, email, password, role, nickname, university from users", rs -> {
+			replica.update("insert into users (id, email, password, role, nickname, university) values (?, ?, ?, ?, ?, ?)",
+					rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+		});
+		primary.query("select id, user_id, course_name, teacher_name, university, test_method, attendance_method,"
+				+ " rating, comment, likes, created_at, revision, updated_at from review", rs -> {
+			replica.update("insert into review (id, user_id, course_name, teacher_name, university, test_method,"
+							+ " attendance_method, rating, comment, likes, created_at, revision, updated_at)"
+							+ " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+					rs.getInt(1), rs.getLong(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6),
+					rs.getString(7), rs.getDouble(8), rs.getString(9), rs.getInt(10), rs.getTimestamp(11),
+					rs.getLong(12), rs.getTimestamp(13));
+		});
+	}
+}
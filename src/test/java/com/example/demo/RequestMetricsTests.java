@@ -0,0 +1,202 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+// 検索結果・詳細画面の SQL 件数が上限（src/test/resources の app.query-budget.*）に収まることを確かめる。
+// データを増やしても件数が増えない作りになっていれば、上限はデータ量に依らず守られる
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class RequestMetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@Autowired
+	private QueryBudgetProperties budget;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private LoginUser viewer;
+	private Review detailReview;
+
+	@BeforeEach
+	void seed() {
+		User[] users = new User[5];
+		for (int i = 0; i < users.length; i++) {
+			users[i] = userRepository.save(new User("metrics" + i + "@example.com", "x", "ROLE_STUDENT", "user" + i, "テスト大学"));
+		}
+		viewer = LoginUser.of(users[0]);
+
+		for (int i = 0; i < 30; i++) {
+			Review review = new Review("統計学" + i, "田中", "テスト大学", "筆記", "毎回", 1 + i % 5, "本文" + i);
+			review.setUser(users[i % users.length]);
+			service.addReview(review);
+			for (int c = 0; c < 3; c++) {
+				Comment comment = commentRepository.save(
+						new Comment(review, users[(i + c) % users.length], "コメント" + c, "大学", "学部", "学科"));
+				Comment reply = new Comment(review, users[(i + c + 1) % users.length], "返信" + c, "大学", "学部", "学科");
+				reply.setParentComment(comment);
+				commentRepository.save(reply);
+			}
+			detailReview = review;
+		}
+	}
+
+	@AfterEach
+	void cleanUp() {
+		commentRepository.deleteAll();
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void searchResultsStayWithinQueryBudget() throws Exception {
+		mockMvc.perform(get("/reviews/search").param("keyword", "統計").param("target", "course").with(user(viewer)))
+				.andExpect(status().isOk());
+
+		DistributionSummary statements = meterRegistry.find("app.sql.statements")
+				.tags("uri", "/reviews/search", "method", "GET")
+				.summary();
+		assertThat(statements).isNotNull();
+		assertThat(statements.count()).isEqualTo(1);
+		assertThat(statements.totalAmount()).isPositive();
+	}
+
+	@Test
+	void reviewDetailStaysWithinQueryBudget() throws Exception {
+		mockMvc.perform(get("/reviews/{id}", detailReview.getId()).with(user(viewer)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void listingPagesLoadAuthorsInAFixedNumberOfStatements() throws Exception {
+		// ログインユーザーのエンティティなど、アプリ側で覚えておくものを先に読ませておく
+		statementsFor("/me");
+
+		double search = statementsFor("/reviews/search", "keyword", "統計", "target", "course");
+		double searchAll = statementsFor("/reviews/search", "keyword", "統計");
+		double byCourse = statementsFor("/reviews/by-course", "name", "統計学1");
+		double byTeacher = statementsFor("/reviews/by-teacher", "name", "田中");
+		double myPage = statementsFor("/me");
+
+		// 投稿者を増やしても（第 2 レベルキャッシュが空でも）件数は変わらない
+		for (int i = 0; i < 10; i++) {
+			User author = userRepository.save(new User("author" + i + "@example.com", "x", "ROLE_STUDENT", "author" + i, "別の大学"));
+			Review review = new Review("統計学1", "田中", "テスト大学", "筆記", "毎回", 3, "追加" + i);
+			review.setUser(author);
+			service.addReview(review);
+		}
+		assertThat(statementsFor("/reviews/search", "keyword", "統計", "target", "course")).isEqualTo(search);
+		assertThat(statementsFor("/reviews/search", "keyword", "統計")).isEqualTo(searchAll);
+		assertThat(statementsFor("/reviews/by-course", "name", "統計学1")).isEqualTo(byCourse);
+		assertThat(statementsFor("/reviews/by-teacher", "name", "田中")).isEqualTo(byTeacher);
+		assertThat(statementsFor("/me")).isEqualTo(myPage);
+	}
+
+	@Test
+	void exceedingTheBudgetFailsTheRequest() {
+		Integer original = budget.getLimits().put("/reviews/{id}", 1);
+		try {
+			assertThrows(QueryBudgetExceededException.class, () ->
+					mockMvc.perform(get("/reviews/{id}", detailReview.getId()).with(user(viewer))));
+		} finally {
+			budget.getLimits().put("/reviews/{id}", original);
+		}
+	}
+
+	@Test
+	void exceedingTheBudgetIsCountedWhenNotFailing() throws Exception {
+		Integer original = budget.getLimits().put("/reviews/{id}", 1);
+		budget.setFailOnExceed(false);
+		try {
+			double before = exceeded("/reviews/{id}");
+			mockMvc.perform(get("/reviews/{id}", detailReview.getId()).with(user(viewer)))
+					.andExpect(status().isOk());
+			assertThat(exceeded("/reviews/{id}")).isEqualTo(before + 1);
+		} finally {
+			budget.setFailOnExceed(true);
+			budget.getLimits().put("/reviews/{id}", original);
+		}
+	}
+
+	@Test
+	void metricsEndpointIsRestrictedToAdmins() throws Exception {
+		mockMvc.perform(get("/actuator/metrics").with(user(viewer)))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/metrics/app.sql.statements").with(user(viewer)))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/metrics").with(user("admin").roles("ADMIN")))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/actuator/health"))
+				.andExpect(status().isOk());
+	}
+
+	private double exceeded(String uri) {
+		Counter counter = meterRegistry.find("app.sql.budget.exceeded")
+				.tags("uri", uri, "method", "GET")
+				.counter();
+		return counter == null ? 0 : counter.count();
+	}
+
+	// 第 2 レベルキャッシュを空にしてから 1 回リクエストし、そのとき実行された SQL の件数を返す
+	private double statementsFor(String uri, String... params) throws Exception {
+		entityManagerFactory.getCache().evictAll();
+		double before = totalStatements(uri);
+		MockHttpServletRequestBuilder request = get(uri).with(user(viewer));
+		for (int i = 0; i < params.length; i += 2) {
+			request.param(params[i], params[i + 1]);
+		}
+		mockMvc.perform(request).andExpect(status().isOk());
+		return totalStatements(uri) - before;
+	}
+
+	private double totalStatements(String uri) {
+		DistributionSummary statements = meterRegistry.find("app.sql.statements")
+				.tags("uri", uri, "method", "GET")
+				.summary();
+		return statements == null ? 0 : statements.totalAmount();
+	}
+}
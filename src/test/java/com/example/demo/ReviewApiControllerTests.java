@@ -0,0 +1,154 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReviewApiControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@AfterEach
+	void cleanUp() {
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void listAndGetReturnViewsWithoutAccountColumns() throws Exception {
+		User author = userRepository.save(new User("api@example.com", "$2a$10$secret", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		Review review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		review.setUser(author);
+		service.addReview(review);
+		LoginUser viewer = LoginUser.of(author);
+
+		mockMvc.perform(get("/api/reviews").with(user(viewer)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].courseName").value("線形代数"))
+				.andExpect(jsonPath("$.items[0].author.nickname").value("投稿者"))
+				.andExpect(content().string(not(containsString("password"))))
+				.andExpect(content().string(not(containsString("api@example.com"))));
+
+		mockMvc.perform(get("/api/reviews/{id}", review.getId()).with(user(viewer)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id").value(review.getId()))
+				.andExpect(jsonPath("$.author.university").value("テスト大学"))
+				.andExpect(content().string(not(containsString("$2a$10$secret"))));
+	}
+
+	@Test
+	void listReturnsFacetCountsAndFiltersByFacet() throws Exception {
+		User author = userRepository.save(new User("facet@example.com", "x", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		service.addReview(new Review("線形代数", "田中", "明治大学", "筆記", "毎回", 4, "良い"));
+		service.addReview(new Review("線形代数演習", "田中", "早稲田大学", "レポート", "毎回", 2, "普通"));
+		searchIndex.rebuild();
+		LoginUser viewer = LoginUser.of(author);
+
+		mockMvc.perform(get("/api/reviews").param("keyword", "線形").with(user(viewer)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.length()").value(2))
+				.andExpect(jsonPath("$.facets[0].name").value("university"))
+				.andExpect(jsonPath("$.facets[0].values.length()").value(2));
+
+		mockMvc.perform(get("/api/reviews").param("keyword", "線形").param("testMethod", "レポート").with(user(viewer)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.length()").value(1))
+				.andExpect(jsonPath("$.items[0].courseName").value("線形代数演習"))
+				.andExpect(jsonPath("$.facets[1].values[0].value").value("レポート"))
+				.andExpect(jsonPath("$.facets[1].values[0].selected").value(true));
+	}
+
+	@Test
+	void exportStreamsEveryReviewAsNdjsonOrCsv() throws Exception {
+		User author = userRepository.save(new User("export@example.com", "$2a$10$secret", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		for (int i = 0; i < 3; i++) {
+			Review review = new Review("授業" + i, "田中", "テスト大学", "筆記", "毎回", 4, "良い, \"とても\"");
+			review.setUser(author);
+			service.addReview(review);
+		}
+		LoginUser viewer = LoginUser.of(author);
+
+		// 全件を読み出せるので管理者だけ
+		mockMvc.perform(get("/api/reviews/export").with(user(viewer)))
+				.andExpect(status().isForbidden());
+		LoginUser admin = LoginUser.of(userRepository.save(
+				new User("export-admin@example.com", "x", "ROLE_ADMIN", "管理者", "テスト大学")));
+
+		MvcResult ndjson = mockMvc.perform(get("/api/reviews/export").with(user(admin)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(ndjson))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertThat(body).endsWith("}\n");
+		assertThat(body.lines().toList()).hasSize(3).allSatisfy(line -> assertThat(line).startsWith("{\"id\":"));
+		assertThat(body).doesNotContain("password");
+
+		MvcResult csv = mockMvc.perform(get("/api/reviews/export").param("format", "csv").with(user(admin)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		List<String> rows = mockMvc.perform(asyncDispatch(csv))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8)
+				.lines().toList();
+		assertThat(rows).hasSize(4);
+		assertThat(rows.get(0)).startsWith("\uFEFFid,courseName,");
+		assertThat(rows.get(1)).contains(",\"良い, \"\"とても\"\"\",");
+	}
+
+	@Test
+	void importIsRestrictedToAdmins() throws Exception {
+		String ndjson = "{\"courseName\":\"線形代数\",\"teacherName\":\"田中\",\"rating\":4}\n";
+
+		mockMvc.perform(post("/api/reviews/import").contentType(MediaType.APPLICATION_NDJSON).content(ndjson)
+						.with(user("student").roles("STUDENT")))
+				.andExpect(status().isForbidden());
+
+		mockMvc.perform(post("/api/reviews/import").contentType(MediaType.APPLICATION_NDJSON).content(ndjson)
+						.with(user("admin").roles("ADMIN")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.imported").value(1))
+				.andExpect(jsonPath("$.failed").value(0));
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest
+class ReviewImportServiceTests {
+
+	@Autowired
+	private ReviewImportService importService;
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.execute("alter table review drop constraint if exists ck_review_import_test");
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		service.rebuildSearchData();
+	}
+
+	@Test
+	void importsValidRowsInBatchesAndReportsTheRest() throws Exception {
+		User author = userRepository.save(new User("import@example.com", "x", "ROLE_STUDENT", "取り込み", "テスト大学"));
+		String tooLong = "あ".repeat(256);
+		String ndjson = String.join("\n",
+				"{\"courseName\":\"線形代数\",\"teacherName\":\"田中\",\"rating\":4,\"likes\":3}",
+				"{\"courseName\":\"微分積分\",\"teacherName\":\"佐藤\",\"rating\":5,\"createdAt\":\"2024-04-01T10:00:00\"}",
+				"{not json",
+				"",
+				"{\"courseName\":\"統計学\",\"teacherName\":\"鈴木\",\"rating\":9}",
+				"{\"courseName\":\"" + tooLong + "\",\"teacherName\":\"高橋\",\"rating\":3}",
+				"{\"courseName\":\"経済学\",\"teacherName\":\"高橋\",\"rating\":2}",
+				"{\"courseName\":\"情報科学\",\"teacherName\":\"伊藤\",\"rating\":1,\"id\":99,\"author\":{\"id\":" + author.getId() + "}}",
+				"{\"courseName\":\"物理学\",\"teacherName\":\"山本\",\"rating\":3,\"author\":{\"id\":999999}}");
+
+		ReviewImportService.ImportReport report = importService.importNdjson(
+				new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), 2);
+
+		// 検証で落ちた行はバッチに入らない: [線形代数, 微分積分] [経済学, 情報科学]
+		assertThat(report.getTotal()).isEqualTo(8);
+		assertThat(report.getImported()).isEqualTo(4);
+		assertThat(report.getFailed()).isEqualTo(4);
+		assertThat(report.getBatches()).isEqualTo(2);
+		assertThat(report.getErrors()).extracting(ReviewImportService.ImportError::getLine).containsExactly(3, 5, 6, 9);
+
+		assertThat(reviewRepository.count()).isEqualTo(4);
+		assertThat(service.search("線形", "course", "recent", null, 10).getItems())
+				.singleElement()
+				.satisfies(review -> {
+					assertThat(review.getLikes()).isEqualTo(3);
+					assertThat(review.getUser()).isNull();
+				});
+		assertThat(service.search("情報", "course", "recent", null, 10).getItems())
+				.singleElement()
+				.satisfies(review -> assertThat(review.getUser().getId()).isEqualTo(author.getId()));
+		assertThat(service.getRatingSummary("情報", "course").getTotalCount()).isEqualTo(1);
+	}
+
+	@Test
+	void rowsRejectedByTheDatabaseAreSkippedOneByOne() throws Exception {
+		// 検証では分からない DB 側の制約違反
+		jdbcTemplate.execute("alter table review add constraint ck_review_import_test check (course_name <> '拒否')");
+		String ndjson = String.join("\n",
+				"{\"courseName\":\"線形代数\",\"teacherName\":\"田中\",\"rating\":4}",
+				"{\"courseName\":\"拒否\",\"teacherName\":\"佐藤\",\"rating\":5}",
+				"{\"courseName\":\"経済学\",\"teacherName\":\"高橋\",\"rating\":2}");
+
+		ReviewImportService.ImportReport report = importService.importNdjson(
+				new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), 10);
+
+		assertThat(report.getImported()).isEqualTo(2);
+		assertThat(report.getFailed()).isEqualTo(1);
+		assertThat(report.getBatches()).isEqualTo(1);
+		assertThat(report.getErrors()).extracting(ReviewImportService.ImportError::getLine).containsExactly(2);
+		assertThat(reviewRepository.count()).isEqualTo(2);
+	}
+}
@@ -0,0 +1,490 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class ReviewServiceTests {
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@Autowired
+	private ReviewSearchDataRefresher refresher;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void cleanUp() {
+		commentRepository.deleteAll();
+		reviewRepository.deleteAll();
+		userRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void commentPreviewsAreLimitedPerReviewAndExcludeReplies() {
+		User user = userRepository.save(new User("preview@example.com", "x", "ROLE_STUDENT", "tester", "テスト大学"));
+		Review first = reviewRepository.save(new Review("線形代数", "田中", "テスト大学", "筆記", "出席なし", 4, "良い"));
+		Review second = reviewRepository.save(new Review("微分積分", "佐藤", "テスト大学", "レポート", "毎回", 3, "普通"));
+
+		for (int i = 0; i < 7; i++) {
+			commentRepository.save(new Comment(first, user, "first-" + i, "大学", "学部", "学科"));
+		}
+		Comment parent = commentRepository.save(new Comment(second, user, "second-0", "大学", "学部", "学科"));
+		Comment reply = new Comment(second, user, "reply", "大学", "学部", "学科");
+		reply.setParentComment(parent);
+		commentRepository.save(reply);
+
+		Map<Integer, List<Comment>> previews = service.getCommentPreviews(List.of(first, second), 5);
+
+		assertThat(previews.get(first.getId()))
+				.extracting(Comment::getContent)
+				.containsExactly("first-0", "first-1", "first-2", "first-3", "first-4");
+		assertThat(previews.get(second.getId()))
+				.extracting(Comment::getContent)
+				.containsExactly("second-0");
+	}
+
+	@Test
+	void commentThreadsAreBuiltFromOneQueryAndPaginatedByThread() {
+		User user = userRepository.save(new User("thread@example.com", "x", "ROLE_STUDENT", "tester", "テスト大学"));
+		Review review = reviewRepository.save(new Review("線形代数", "田中", "テスト大学", "筆記", "出席なし", 4, "良い"));
+
+		List<Comment> threads = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			threads.add(commentRepository.save(new Comment(review, user, "thread-" + i, "大学", "学部", "学科")));
+		}
+		// thread-0 の下に MAX_REPLY_DEPTH より 1 段深い返信の鎖を作る
+		Comment parent = threads.get(0);
+		for (int depth = 1; depth <= ReviewService.MAX_REPLY_DEPTH + 1; depth++) {
+			Comment reply = new Comment(review, user, "reply-" + depth, "大学", "学部", "学科");
+			reply.setParentComment(parent);
+			parent = commentRepository.save(reply);
+		}
+
+		ReviewService.CommentThreadPage first = service.getCommentThreads(review.getId(), 0, 2);
+		assertThat(first.getTotalThreads()).isEqualTo(3);
+		assertThat(first.getTotalPages()).isEqualTo(2);
+		assertThat(first.isHasNext()).isTrue();
+		assertThat(first.getThreads())
+				.extracting(node -> node.getComment().getContent())
+				.containsExactly("thread-0", "thread-1");
+
+		// 上限を超えた返信は上限の深さに並ぶ
+		ReviewService.CommentNode node = first.getThreads().get(0);
+		for (int depth = 1; depth < ReviewService.MAX_REPLY_DEPTH; depth++) {
+			assertThat(node.getReplies()).hasSize(1);
+			node = node.getReplies().get(0);
+			assertThat(node.getDepth()).isEqualTo(depth);
+		}
+		assertThat(node.getReplies())
+				.extracting(n -> n.getComment().getContent())
+				.containsExactly("reply-" + ReviewService.MAX_REPLY_DEPTH, "reply-" + (ReviewService.MAX_REPLY_DEPTH + 1));
+		assertThat(node.getReplies())
+				.allMatch(n -> n.getDepth() == ReviewService.MAX_REPLY_DEPTH);
+
+		ReviewService.CommentThreadPage last = service.getCommentThreads(review.getId(), 5, 2);
+		assertThat(last.getPage()).isEqualTo(1);
+		assertThat(last.isHasPrevious()).isTrue();
+		assertThat(last.getThreads())
+				.extracting(n -> n.getComment().getContent())
+				.containsExactly("thread-2");
+	}
+
+	@Test
+	void keysetPagesCoverEveryMatchOnceInSortOrder() {
+		List<Review> saved = new ArrayList<>();
+		int[] ratings = {3, 5, 3, 1, 5, 4, 3};
+		for (int i = 0; i < ratings.length; i++) {
+			Review review = new Review("情報科学" + i, "山田", "テスト大学", "筆記", "毎回", ratings[i], "c");
+			review.setLikes(i % 3);
+			service.addReview(review);
+			saved.add(review);
+		}
+		service.addReview(new Review("経済学", "鈴木", "テスト大学", "筆記", "毎回", 5, "対象外"));
+
+		String[][] cases = {{"course", "recent"}, {"course", "rating"}, {"course", "likes"}, {"all", "rating"}};
+		for (String[] searchCase : cases) {
+			String target = searchCase[0];
+			String sort = searchCase[1];
+			List<Integer> pagedIds = new ArrayList<>();
+			String cursor = null;
+			do {
+				ReviewService.ReviewPage<Review> page = service.search("情報", target, sort, cursor, 3);
+				page.getItems().forEach(r -> pagedIds.add(r.getId()));
+				cursor = page.getNextCursor();
+			} while (cursor != null);
+
+			Comparator<Review> order = switch (sort) {
+				case "rating" -> Comparator.comparingDouble(Review::getRating).reversed();
+				case "likes" -> Comparator.comparingInt(Review::getLikes).reversed();
+				default -> (a, b) -> 0;
+			};
+			List<Integer> expected = saved.stream()
+					.sorted(order.thenComparing(Review::getId, Comparator.reverseOrder()))
+					.map(Review::getId)
+					.toList();
+			assertThat(pagedIds).as(target + "/" + sort).containsExactlyElementsOf(expected);
+		}
+	}
+
+	@Test
+	void viewPagesFollowTheSameOrderAsEntityPages() {
+		User author = userRepository.save(new User("view@example.com", "secret-hash", "ROLE_STUDENT", "投稿者", "テスト大学"));
+		int[] ratings = {3, 5, 3, 1, 5, 4, 3};
+		for (int i = 0; i < ratings.length; i++) {
+			Review review = new Review("情報科学" + i, "山田", "テスト大学", "筆記", "毎回", ratings[i], "c");
+			review.setLikes(i % 3);
+			review.setUser(author);
+			service.addReview(review);
+		}
+
+		// キーワード無しは DB のキーセット、キーワード有りはインデックスを通る
+		String[] keywords = {null, "情報"};
+		for (String keyword : keywords) {
+			for (String sort : new String[] {"recent", "rating", "likes"}) {
+				List<Integer> entityIds = new ArrayList<>();
+				List<Integer> viewIds = new ArrayList<>();
+				String cursor = null;
+				do {
+					ReviewService.ReviewPage<Review> page = service.search(keyword, "course", sort, cursor, 3);
+					page.getItems().forEach(r -> entityIds.add(r.getId()));
+					cursor = page.getNextCursor();
+				} while (cursor != null);
+				do {
+					ReviewService.ReviewPage<ReviewView> page = service.searchViews(keyword, "course", sort, cursor, 3);
+					page.getItems().forEach(v -> viewIds.add(v.getId()));
+					cursor = page.getNextCursor();
+				} while (cursor != null);
+
+				assertThat(viewIds).as(keyword + "/" + sort).hasSize(ratings.length).containsExactlyElementsOf(entityIds);
+			}
+		}
+
+		ReviewView view = service.getViewById(service.searchViews(null, "all", "recent", null, 1).getItems().get(0).getId());
+		assertThat(view.getAuthor().getNickname()).isEqualTo("投稿者");
+		assertThat(view.getCourseName()).startsWith("情報科学");
+	}
+
+	// 授業名・教員名の詳細絞り込みは完全一致（大文字小文字も区別する）
+	@Test
+	void courseAndTeacherFiltersMatchNamesExactly() {
+		Review upper = new Review("English A", "Smith", "テスト大学", "筆記", "毎回", 4, "c");
+		Review lower = new Review("english a", "smith", "テスト大学", "筆記", "毎回", 3, "c");
+		service.addReview(upper);
+		service.addReview(lower);
+		service.addReview(new Review("English A2", "Smithson", "テスト大学", "筆記", "毎回", 5, "c"));
+
+		assertThat(service.getByCourseName("English A")).extracting(Review::getId).containsExactly(upper.getId());
+		assertThat(service.getByCourseName("english a")).extracting(Review::getId).containsExactly(lower.getId());
+		assertThat(service.getByTeacherName("Smith")).extracting(Review::getId).containsExactly(upper.getId());
+		assertThat(service.getByTeacherName("SMITH")).isEmpty();
+	}
+
+	@Test
+	void ratingSummaryCountsWholeResultNotJustFirstPage() {
+		for (int rating : new int[] {5, 4, 4, 2}) {
+			service.addReview(new Review("統計学", "高橋", "テスト大学", "筆記", "毎回", rating, "c"));
+		}
+
+		ReviewService.RatingSummary summary = service.getRatingSummary("統計", "course");
+
+		assertThat(summary.getTotalCount()).isEqualTo(4);
+		assertThat(summary.getAverage()).isEqualTo(4.0);
+		assertThat(summary.getBreakdowns())
+				.extracting(ReviewService.RatingBreakdown::getCount)
+				.containsExactly(1L, 2L, 0L, 1L, 0L);
+	}
+
+	// 完全一致する授業名があっても、それを含む別の授業名も数える（検索結果の一覧・DB での集計と同じ範囲）
+	@Test
+	void ratingAggregatesIncludeLongerNamesContainingAnExactMatch() {
+		service.addReview(new Review("英語", "高橋", "テスト大学", "筆記", "毎回", 5, "c"));
+		service.addReview(new Review("英語I", "高橋", "テスト大学", "筆記", "毎回", 3, "c"));
+		service.addReview(new Review("英語II", "中村", "テスト大学", "筆記", "毎回", 1, "c"));
+		ratingAggregates.rebuild();
+		searchIndex.rebuild();
+
+		assertThat(service.getAverage("英語")).isEqualTo(3.0);
+		ReviewService.RatingSummary summary = service.getRatingSummary("英語", "course");
+		assertThat(summary.getTotalCount()).isEqualTo(3);
+		assertThat(summary.getAverage()).isEqualTo(3.0);
+		assertThat(summary.getTotalCount())
+				.isEqualTo(service.search("英語", "course", "recent", null, 10).getItems().size());
+	}
+
+	@Test
+	void ratingAggregatesFollowEditsAndDeletes() {
+		Review a = new Review("統計学Ａ", "高橋", "テスト大学", "筆記", "毎回", 5, "c");
+		Review b = new Review("統計学a", "高橋", "テスト大学", "筆記", "毎回", 3, "c");
+		Review c = new Review("統計学B", "中村", "テスト大学", "筆記", "毎回", 1, "c");
+		service.addReview(a);
+		service.addReview(b);
+		service.addReview(c);
+		ratingAggregates.rebuild();
+		assertThat(ratingAggregates.isReady()).isTrue();
+
+		// 全角・大文字違いは同じ授業として集計される
+		assertThat(service.getAverage("統計学a")).isEqualTo(4.0);
+		assertThat(service.getRatingSummary("統計", "course").getTotalCount()).isEqualTo(3);
+
+		b.setRating(1);
+		b.setTeacherName("中村");
+		service.save(b);
+		assertThat(service.getAverage("統計学A")).isEqualTo(3.0);
+		assertThat(service.getRatingSummary("高橋", "teacher").getTotalCount()).isEqualTo(1);
+		assertThat(service.getRatingSummary("中村", "teacher").getBreakdowns())
+				.extracting(ReviewService.RatingBreakdown::getCount)
+				.containsExactly(0L, 0L, 0L, 0L, 2L);
+
+		service.deleteById(a.getId());
+		assertThat(service.getAverage("統計学A")).isEqualTo(1.0);
+		assertThat(service.getRatingSummary("統計", "course").getAverage()).isEqualTo(1.0);
+
+		// 名前を変えると、元の名前の bi-gram からは引けなくなる（1 文字の keyword は名前を全部見る）
+		c.setCourseName("線形代数");
+		service.save(c);
+		assertThat(service.getRatingSummary("統計", "course").getTotalCount()).isEqualTo(1);
+		assertThat(service.getRatingSummary("代数", "course").getTotalCount()).isEqualTo(1);
+		assertThat(service.getRatingSummary("学", "course").getTotalCount()).isEqualTo(1);
+	}
+
+	@Test
+	void searchIndexMatchesNormalizedSubstringsAndFollowsWrites() {
+		User user = userRepository.save(new User("index@example.com", "x", "ROLE_STUDENT", "tester", "明治大学"));
+		Review db = new Review("ＤＢ設計論", "ｶﾜｸﾞﾁ", null, "筆記", "毎回", 4, "c");
+		db.setUser(user);
+		service.addReview(db);
+		Review other = new Review("心理学概論", "カワグチ", "早稲田大学", "筆記", "毎回", 2, "c");
+		service.addReview(other);
+
+		searchIndex.rebuild();
+		assertThat(searchIndex.isReady()).isTrue();
+
+		assertThat(idsOf(service.search("db設計", "course", "recent", null, 10))).containsExactly(db.getId());
+		assertThat(idsOf(service.search("カワグチ", "teacher", "rating", null, 10))).containsExactly(db.getId(), other.getId());
+		// カタカナとひらがなは寄せない（DB の部分一致と同じ）
+		assertThat(idsOf(service.search("かわぐち", "teacher", "rating", null, 10))).isEmpty();
+		assertThat(idsOf(service.search("明治", "university", "recent", null, 10))).containsExactly(db.getId());
+		assertThat(idsOf(service.search("学", "all", "recent", null, 10))).containsExactly(other.getId(), db.getId());
+		assertThat(idsOf(service.search("設計概論", "all", "recent", null, 10))).isEmpty();
+
+		other.setCourseName("データベース設計");
+		service.save(other);
+		assertThat(idsOf(service.search("設計", "course", "recent", null, 10))).containsExactly(other.getId(), db.getId());
+
+		service.deleteById(db.getId());
+		assertThat(idsOf(service.search("設計", "course", "recent", null, 10))).containsExactly(other.getId());
+	}
+
+	@Test
+	void facetCountsAndFiltersComeFromOnePassOverTheIndex() {
+		Review a = new Review("統計学A", "田中", "明治大学", "筆記", "毎回", 5, "c");
+		Review b = new Review("統計学B", "佐藤", "明治大学", "レポート", "毎回", 4, "c");
+		Review c = new Review("統計学C", "鈴木", "早稲田大学", "筆記", "なし", 4, "c");
+		Review d = new Review("線形代数", "高橋", "明治大学", "筆記", "毎回", 5, "c");
+		for (Review review : List.of(a, b, c, d)) {
+			service.addReview(review);
+		}
+		searchIndex.rebuild();
+
+		ReviewService.ReviewPage<Review> all = service.search("統計", "course", "recent", null, 10);
+		assertThat(idsOf(all)).containsExactly(c.getId(), b.getId(), a.getId());
+		assertThat(facet(all, "university")).containsExactly(Map.entry("明治大学", 2L), Map.entry("早稲田大学", 1L));
+		assertThat(facet(all, "testMethod")).containsExactly(Map.entry("筆記", 2L), Map.entry("レポート", 1L));
+		assertThat(facet(all, "attendanceMethod")).containsExactly(Map.entry("毎回", 2L), Map.entry("なし", 1L));
+		assertThat(facet(all, "star")).containsExactly(Map.entry("5", 1L), Map.entry("4", 2L));
+
+		// ファセットを選ぶと結果が絞り込まれる。件数は、そのファセット自身の選択だけを外して数える
+		Map<ReviewFacet, String> filters = ReviewFacet.filters("明治大学", "筆記", null, null);
+		ReviewService.ReviewPage<Review> filtered = service.search("統計", "course", "recent", null, 10, filters);
+		assertThat(idsOf(filtered)).containsExactly(a.getId());
+		assertThat(facet(filtered, "university")).containsExactly(Map.entry("早稲田大学", 1L), Map.entry("明治大学", 1L));
+		assertThat(filtered.getFacets().get(0).getValues().get(1).isSelected()).isTrue();
+		assertThat(facet(filtered, "testMethod")).containsExactly(Map.entry("レポート", 1L), Map.entry("筆記", 1L));
+		assertThat(facet(filtered, "attendanceMethod")).containsExactly(Map.entry("毎回", 1L));
+		assertThat(facet(filtered, "star")).containsExactly(Map.entry("5", 1L));
+
+		// 次のページでも件数は全体のまま
+		ReviewService.ReviewPage<Review> first = service.search("統計", "course", "recent", null, 1,
+				ReviewFacet.filters("明治大学", null, null, null));
+		ReviewService.ReviewPage<Review> second = service.search("統計", "course", "recent", first.getNextCursor(), 1,
+				ReviewFacet.filters("明治大学", null, null, null));
+		assertThat(idsOf(first)).containsExactly(b.getId());
+		assertThat(idsOf(second)).containsExactly(a.getId());
+		assertThat(facet(second, "testMethod")).containsExactly(Map.entry("レポート", 1L), Map.entry("筆記", 1L));
+
+		// 知らない値を選ぶと 0 件（選んだ値は 0 件で残る）
+		ReviewService.ReviewPage<Review> none = service.search("統計", "course", "recent", null, 10,
+				ReviewFacet.filters("東京大学", null, null, null));
+		assertThat(none.getItems()).isEmpty();
+		assertThat(facet(none, "university"))
+				.containsExactly(Map.entry("明治大学", 2L), Map.entry("早稲田大学", 1L), Map.entry("東京大学", 0L));
+		assertThat(facet(none, "testMethod")).isEmpty();
+
+		// 書き込みにも追従する
+		c.setUniversity("明治大学");
+		service.save(c);
+		assertThat(idsOf(service.search("統計", "course", "recent", null, 10, filters)))
+				.containsExactly(c.getId(), a.getId());
+
+		// キーワード無し（インデックスを使わない）でも同じ条件で絞り込み、同じ数え方で件数を返す
+		ReviewService.ReviewPage<Review> fromDatabase = service.search(null, null, "recent", null, 10,
+				ReviewFacet.filters(null, null, null, "5"));
+		assertThat(idsOf(fromDatabase)).containsExactly(d.getId(), a.getId());
+		assertThat(facet(fromDatabase, "university")).containsExactly(Map.entry("明治大学", 2L));
+		assertThat(facet(fromDatabase, "star")).containsExactly(Map.entry("5", 2L), Map.entry("4", 2L));
+	}
+
+	// 巻き戻ったトランザクションの書き込みは、メモリ上のインデックスにも残らない
+	@Test
+	void searchIndexIgnoresRolledBackWrites() {
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			service.addReview(new Review("幻の講義", "田中", "テスト大学", "筆記", "毎回", 5, "c"));
+			status.setRollbackOnly();
+		});
+
+		assertThat(reviewRepository.count()).isZero();
+		assertThat(service.search("幻の講義", "course", "recent", null, 10).getFacets())
+				.allSatisfy(group -> assertThat(group.getValues()).isEmpty());
+		assertThat(service.getRatingSummary("幻の講義", "course").getTotalCount()).isZero();
+	}
+
+	// 他のインスタンスでの追加・編集（ここでは JDBC で直接書く）を、定期的な取り込みで拾う
+	@Test
+	void searchIndexPicksUpWritesFromOtherInstances() {
+		Review review = new Review("経済学", "田中", "テスト大学", "筆記", "毎回", 3, "c");
+		service.addReview(review);
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+
+		jdbcTemplate.update("update review set course_name = '国際経済学', updated_at = ? where id = ?",
+				LocalDateTime.now(), review.getId());
+		jdbcTemplate.update("insert into review (course_name, teacher_name, rating, likes, comment) "
+				+ "values ('国際政治学', '佐藤', 4, 0, 'c')");
+		assertThat(idsOf(service.search("国際", "course", "recent", null, 10))).isEmpty();
+
+		refresher.refreshChanged();
+		assertThat(service.search("国際", "course", "recent", null, 10).getItems())
+				.extracting(Review::getCourseName)
+				.containsExactly("国際政治学", "国際経済学");
+		assertThat(service.getRatingSummary("国際", "course").getTotalCount()).isEqualTo(2);
+	}
+
+	private static Map<String, Long> facet(ReviewService.ReviewPage<Review> page, String name) {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (ReviewService.FacetGroup group : page.getFacets()) {
+			if (group.getName().equals(name)) {
+				group.getValues().forEach(value -> counts.put(value.getValue(), value.getCount()));
+			}
+		}
+		return counts;
+	}
+
+	private static List<Integer> idsOf(ReviewService.ReviewPage<Review> page) {
+		return page.getItems().stream().map(Review::getId).toList();
+	}
+
+	@Test
+	void concurrentLikesAreNeverLost() throws Exception {
+		Review review = new Review("人気講義", "伊藤", "テスト大学", "筆記", "毎回", 5, "c");
+		service.addReview(review);
+		searchIndex.rebuild();
+
+		int threads = 8;
+		int likesPerThread = 50;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < likesPerThread; i++) {
+						service.like(review.getId());
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		int expected = threads * likesPerThread;
+		assertThat(service.getById(review.getId()).getLikes()).isEqualTo(expected);
+
+		// インデックス側のいいね数も一致している（カーソルはインデックスの値から作られる）
+		service.addReview(new Review("人気薄の講義", "伊藤", "テスト大学", "筆記", "毎回", 1, "c"));
+		ReviewService.ReviewPage<Review> first = service.search("人気", "course", "likes", null, 1);
+		assertThat(first.getItems()).extracting(Review::getId).containsExactly(review.getId());
+		assertThat(ReviewCursor.decode(first.getNextCursor()).getValue()).isEqualTo(expected);
+	}
+
+	@Test
+	void editingDoesNotOverwriteLikesGivenAfterTheReviewWasLoaded() {
+		Review review = new Review("人気講義", "伊藤", "テスト大学", "筆記", "毎回", 5, "c");
+		service.addReview(review);
+		searchIndex.rebuild();
+
+		// 編集画面で読んだ後に、いいねが 2 回付く
+		Review loaded = service.getById(review.getId());
+		service.like(review.getId());
+		service.like(review.getId());
+
+		loaded.setComment("編集後");
+		service.save(loaded);
+
+		Review saved = service.getById(review.getId());
+		assertThat(saved.getLikes()).isEqualTo(2);
+		assertThat(saved.getComment()).isEqualTo("編集後");
+		// いいね 2 回と編集 1 回で、更新番号はそれぞれ別の値になる
+		assertThat(service.getStamp(review.getId()).getRevision()).isEqualTo(3);
+		ReviewService.ReviewPage<Review> page = service.search("人気", "course", "likes", null, 1);
+		assertThat(page.getItems()).extracting(Review::getLikes).containsExactly(2);
+	}
+
+}
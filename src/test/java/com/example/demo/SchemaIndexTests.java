@@ -0,0 +1,133 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+// Flyway のマイグレーションで作った索引を、主なクエリの実行計画（H2 の EXPLAIN）が使っているか確認する
+@SpringBootTest
+class SchemaIndexTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seed() {
+		// 行が無いと H2 は全件走査の方が安いと判断するので、それなりの件数を入れてから統計を取る
+		jdbcTemplate.update("insert into users (email, password, role) values ('plan@example.com', 'x', 'ROLE_STUDENT')");
+		Long userId = jdbcTemplate.queryForObject("select id from users where email = 'plan@example.com'", Long.class);
+		jdbcTemplate.update("""
+				insert into review (likes, rating, course_name, teacher_name, user_id)
+				select mod("X", 50), mod("X", 5) + 1, concat('Course', mod("X", 300)), concat('Teacher', mod("X", 100)), ?
+				from system_range(1, 3000)
+				""", userId);
+		jdbcTemplate.update("""
+				insert into comment (review_id, user_id, content, university, faculty, department)
+				select r.id, r.user_id, 'c', '大学', '学部', '学科' from review r
+				""");
+		jdbcTemplate.execute("analyze");
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("delete from comment");
+		jdbcTemplate.update("delete from review");
+		jdbcTemplate.update("delete from users");
+	}
+
+	// 既存の DB（V1 の時点のスキーマ）は baseline-on-migrate で V1 扱いになり、V2 以降だけが流れる。
+	// それでエンティティが使う列がすべて揃うこと（ddl-auto=validate が通ること）を確かめる
+	@Test
+	void baselinedDatabaseGetsEveryColumnFromLaterMigrations() {
+		DriverManagerDataSource existing = new DriverManagerDataSource(
+				"jdbc:h2:mem:baseline-upgrade;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		ResourceDatabasePopulator baseline = new ResourceDatabasePopulator(
+				new ClassPathResource("db/migration/V1__baseline.sql"));
+		baseline.execute(existing);
+		// V1 は元のスキーマそのもの（あとから足した列はまだ無い）
+		assertThat(reviewColumns(existing)).doesNotContain("display_path", "thumbnail_path", "revision");
+
+		Flyway.configure()
+				.dataSource(existing)
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load()
+				.migrate();
+
+		assertThat(reviewColumns(existing)).contains("display_path", "thumbnail_path", "revision", "updated_at", "course_name_lower");
+	}
+
+	private static List<String> reviewColumns(DataSource dataSource) {
+		return new JdbcTemplate(dataSource).queryForList(
+				"select column_name from information_schema.columns where table_name = 'review'", String.class);
+	}
+
+	@Test
+	void generatedLowercaseColumnsFollowTheNames() {
+		assertThat(jdbcTemplate.queryForObject(
+				"select course_name_lower from review where course_name = 'Course1' limit 1", String.class))
+				.isEqualTo("course1");
+	}
+
+	@Test
+	void sortedPagesReadTheSortIndexInOrder() {
+		assertThat(explain("select r.id from review r order by r.rating desc, r.id desc limit 20"))
+				.contains("idx_review_rating_id").contains("index sorted");
+		assertThat(explain("""
+				select r.id from review r
+				where r.rating < 3 or (r.rating = 3 and r.id < 100)
+				order by r.rating desc, r.id desc limit 20
+				"""))
+				.contains("idx_review_rating_id").contains("index sorted");
+		assertThat(explain("select r.id from review r order by r.likes desc, r.id desc limit 20"))
+				.contains("idx_review_likes_id").contains("index sorted");
+	}
+
+	@Test
+	void courseAndTeacherLookupsUseTheLowercaseIndexes() {
+		assertThat(explain("select r.id from review r where r.course_name_lower = 'course1'"))
+				.contains("idx_review_course_rating: course_name_lower = 'course1'");
+		assertThat(explain("select r.id from review r where r.teacher_name_lower = 'teacher1'"))
+				.contains("idx_review_teacher_rating: teacher_name_lower = 'teacher1'");
+
+		// 部分一致の評価サマリーは表を読まずに索引だけで集計する
+		assertThat(explain("""
+				select r.rating, count(r.id) from review r
+				where r.course_name_lower like '%rse1%' escape '\\'
+				group by r.rating
+				"""))
+				.contains("idx_review_course_rating")
+				.doesNotContain("tableScan");
+	}
+
+	@Test
+	void commentQueriesUseAnIndexOnTheReview() {
+		assertThat(explain("select c.id from comment c where c.review_id = 1 order by c.id"))
+				.contains("review_id = 1")
+				.doesNotContain("tableScan");
+		assertThat(explain("""
+				select c.id from comment c
+				where c.review_id in (1, 2, 3) and c.parent_comment_id is null
+				order by c.review_id, c.id
+				"""))
+				.contains("review_id IN(1, 2, 3)")
+				.doesNotContain("tableScan");
+		assertThat(explain("select r.id from review r where r.user_id = 1"))
+				.doesNotContain("tableScan");
+	}
+
+	private String explain(String sql) {
+		return jdbcTemplate.queryForObject("explain " + sql, String.class);
+	}
+}
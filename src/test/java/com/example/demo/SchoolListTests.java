@@ -0,0 +1,39 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+class SchoolListTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void buildTimeBinaryHoldsTheSameNamesAsTheJson() throws Exception {
+		List<String> json;
+		try (InputStream in = new ClassPathResource(SchoolList.JSON_RESOURCE).getInputStream()) {
+			json = SchoolList.readJson(objectMapper, in);
+		}
+		// process-classes で作った .bin（テストの前に必ずできている）
+		assertThat(new ClassPathResource(SchoolList.BINARY_RESOURCE).exists()).isTrue();
+		assertThat(SchoolList.load(objectMapper)).hasSize(json.size()).containsExactlyElementsOf(json);
+	}
+
+	@Test
+	void roundTripsAndRejectsOtherFormats() throws Exception {
+		List<String> names = List.of("東京大学", "", "ICU国際基督教大学", "𠮷野大学");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		SchoolList.writeBinary(names, out);
+		assertThat(SchoolList.readBinary(new ByteArrayInputStream(out.toByteArray()))).containsExactlyElementsOf(names);
+
+		byte[] json = "[\"東京大学\"]".getBytes(StandardCharsets.UTF_8);
+		assertThat(SchoolList.readBinary(new ByteArrayInputStream(json))).isNull();
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class SecondLevelCacheTests {
+
+	private static final String REVIEW_REGION = "com.example.demo.Review";
+
+	@Autowired
+	private ReviewService service;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private ReviewSearchIndex searchIndex;
+
+	@Autowired
+	private RatingAggregateStore ratingAggregates;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		reviewRepository.deleteAll();
+		searchIndex.rebuild();
+		ratingAggregates.rebuild();
+	}
+
+	@Test
+	void reviewIsLoadedFromCacheOnSecondLookup() {
+		Review review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		service.addReview(review);
+		entityManagerFactory.getCache().evictAll();
+		statistics.clear();
+
+		service.getById(review.getId());
+		service.getById(review.getId());
+
+		CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(REVIEW_REGION);
+		assertThat(region.getMissCount()).isEqualTo(1);
+		assertThat(region.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	void likeEvictsOnlyTheLikedReview() {
+		Review liked = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		Review other = new Review("微分積分", "佐藤", "テスト大学", "レポート", "毎回", 3, "普通");
+		service.addReview(liked);
+		service.addReview(other);
+		service.getById(liked.getId());
+		service.getById(other.getId());
+
+		service.like(liked.getId());
+
+		assertThat(entityManagerFactory.getCache().contains(Review.class, liked.getId())).isFalse();
+		assertThat(entityManagerFactory.getCache().contains(Review.class, other.getId())).isTrue();
+		assertThat(service.getById(liked.getId()).getLikes()).isEqualTo(1);
+	}
+
+	@Test
+	void editAndDeleteAreVisibleThroughTheCache() {
+		Review review = new Review("線形代数", "田中", "テスト大学", "筆記", "毎回", 4, "良い");
+		service.addReview(review);
+
+		Review cached = service.getById(review.getId());
+		cached.setCourseName("線形代数II");
+		service.save(cached);
+		assertThat(service.getById(review.getId()).getCourseName()).isEqualTo("線形代数II");
+
+		service.deleteById(review.getId());
+		assertThrows(RuntimeException.class, () -> service.getById(review.getId()));
+	}
+}
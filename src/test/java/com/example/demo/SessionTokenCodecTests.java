@@ -0,0 +1,54 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class SessionTokenCodecTests {
+
+	private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+	private final SessionTokenCodec codec = new SessionTokenCodec(SECRET);
+	private final Instant now = Instant.parse("2024-04-01T00:00:00Z");
+
+	@Test
+	void roundTripsThePrincipalUntilItExpires() {
+		LoginUser user = new LoginUser(42L, "codec@example.com", "$2a$10$hash", "ROLE_STUDENT", "ニックネーム", "テスト大学");
+		String token = codec.encode(user, now.plusSeconds(60));
+
+		LoginUser decoded = codec.decode(token, now);
+		assertThat(decoded.getId()).isEqualTo(42L);
+		assertThat(decoded.getEmail()).isEqualTo("codec@example.com");
+		assertThat(decoded.getNickname()).isEqualTo("ニックネーム");
+		assertThat(decoded.getUniversity()).isEqualTo("テスト大学");
+		assertThat(decoded.getAuthorities()).extracting("authority").containsExactly("ROLE_STUDENT");
+		// パスワードのハッシュはトークンに入れない
+		assertThat(decoded.getPassword()).isEmpty();
+		assertThat(token).doesNotContain("hash");
+
+		assertThat(codec.decode(token, now.plusSeconds(60))).isNull();
+	}
+
+	@Test
+	void rejectsTamperedTokensAndOtherKeys() {
+		LoginUser user = new LoginUser(1L, "codec@example.com", "x", "ROLE_STUDENT", null, null);
+		String token = codec.encode(user, now.plusSeconds(60));
+		assertThat(codec.decode(token, now).getNickname()).isNull();
+
+		// 中身を書き換える（ロールを上げるなど）と署名が合わない
+		String admin = codec.encode(new LoginUser(1L, "codec@example.com", "x", "ROLE_ADMIN", null, null),
+				now.plusSeconds(60));
+		String forged = admin.substring(0, admin.indexOf('.')) + token.substring(token.indexOf('.'));
+		assertThat(codec.decode(forged, now)).isNull();
+
+		byte[] otherSecret = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+		assertThat(new SessionTokenCodec(otherSecret).decode(token, now)).isNull();
+		assertThat(codec.decode("not-a-token", now)).isNull();
+		assertThat(codec.decode("!!!.???", now)).isNull();
+
+		assertThrows(IllegalArgumentException.class, () -> new SessionTokenCodec(new byte[16]));
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest(properties = {
+		"app.session.stateless=true",
+		"app.session.secret=stateless-session-test-secret-0123456789",
+		"app.session.ttl=1h"})
+@AutoConfigureMockMvc
+class StatelessSessionTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.save(new User("stateless@example.com", passwordEncoder.encode("secret"), "ROLE_STUDENT",
+				"ステートレス", "テスト大学"));
+	}
+
+	@AfterEach
+	void cleanUp() {
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void loginIssuesASignedCookieInsteadOfAnHttpSession() throws Exception {
+		MvcResult login = mockMvc.perform(formLogin("/login").user("stateless@example.com").password("secret"))
+				.andExpect(redirectedUrl("/reviews"))
+				.andReturn();
+		assertThat(login.getRequest().getSession(false)).isNull();
+
+		Cookie session = login.getResponse().getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME);
+		assertThat(session).isNotNull();
+		assertThat(session.isHttpOnly()).isTrue();
+		assertThat(session.getMaxAge()).isEqualTo(3600);
+
+		// Cookie だけで認証される（サーバー側にセッションを作らない）
+		MvcResult page = mockMvc.perform(get("/reviews/average").param("courseName", "線形代数").cookie(session))
+				.andExpect(status().isOk())
+				.andReturn();
+		assertThat(page.getRequest().getSession(false)).isNull();
+
+		// ログアウトで Cookie を消す
+		MvcResult logout = mockMvc.perform(post("/logout").cookie(session))
+				.andExpect(redirectedUrl("/login?logout"))
+				.andReturn();
+		assertThat(logout.getResponse().getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME).getMaxAge())
+				.isZero();
+	}
+
+	@Test
+	void requestsWithoutAValidCookieAreSentToTheLoginPage() throws Exception {
+		mockMvc.perform(get("/reviews/average").param("courseName", "線形代数"))
+				.andExpect(redirectedUrlPattern("**/login"));
+
+		Cookie session = mockMvc.perform(formLogin("/login").user("stateless@example.com").password("secret"))
+				.andReturn().getResponse().getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME);
+		String value = session.getValue();
+		Cookie tampered = new Cookie(SignedCookieSecurityContextRepository.COOKIE_NAME,
+				value.substring(0, value.length() - 2) + (value.endsWith("AA") ? "BB" : "AA"));
+		mockMvc.perform(get("/reviews/average").param("courseName", "線形代数").cookie(tampered))
+				.andExpect(redirectedUrlPattern("**/login"));
+	}
+}
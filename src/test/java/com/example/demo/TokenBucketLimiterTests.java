@@ -0,0 +1,52 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketLimiterTests {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	@Test
+	void burstUpToCapacityThenRefillsOverTime() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1.0, 4);
+		long now = 0;
+
+		assertThat(limiter.tryAcquire(1, now)).isTrue();
+		assertThat(limiter.tryAcquire(1, now)).isTrue();
+		assertThat(limiter.tryAcquire(1, now)).isTrue();
+		assertThat(limiter.tryAcquire(1, now)).isFalse();
+
+		// 別のキーは別のバケット
+		assertThat(limiter.tryAcquire(2, now)).isTrue();
+
+		// 0.5 秒ではまだ 1 個戻らない、1 秒で 1 個戻る
+		assertThat(limiter.tryAcquire(1, now + SECOND / 2)).isFalse();
+		assertThat(limiter.tryAcquire(1, now + SECOND)).isTrue();
+		assertThat(limiter.tryAcquire(1, now + SECOND)).isFalse();
+
+		// 長く空いても capacity までしか貯まらない
+		long later = now + 100 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			assertThat(limiter.tryAcquire(1, later)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(1, later)).isFalse();
+	}
+
+	@Test
+	void idleBucketsAreEvictedOnceFull() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(2, 1.0, 1);
+		limiter.tryAcquire(1, 0);
+		limiter.tryAcquire(2, 0);
+		limiter.tryAcquire(2, 0);
+		assertThat(limiter.size()).isEqualTo(2);
+
+		// キー 1 は 1 秒で満タンに戻るが、キー 2 はまだ
+		assertThat(limiter.evictIdle(SECOND)).isEqualTo(1);
+		assertThat(limiter.size()).isEqualTo(1);
+
+		assertThat(limiter.evictIdle(2 * SECOND)).isEqualTo(1);
+		assertThat(limiter.size()).isZero();
+	}
+}
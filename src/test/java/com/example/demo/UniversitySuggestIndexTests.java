@@ -0,0 +1,45 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class UniversitySuggestIndexTests {
+
+	private final UniversitySuggestIndex index = UniversitySuggestIndex.of(List.of(
+			"明治大学",
+			"明治学院大学",
+			"東京大学",
+			"東京工業大学",
+			"明星大学",
+			"ICU国際基督教大学",
+			"フェリス女学院大学"));
+
+	@Test
+	void prefixMatchesKeepSourceOrder() {
+		assertThat(index.suggest("明治", 8)).containsExactly("明治大学", "明治学院大学");
+		assertThat(index.suggest("明", 8)).containsExactly("明治大学", "明治学院大学", "明星大学");
+	}
+
+	@Test
+	void fallsBackToSubstringMatches() {
+		assertThat(index.suggest("学院", 8)).containsExactly("明治学院大学", "フェリス女学院大学");
+		assertThat(index.suggest("工業", 8)).containsExactly("東京工業大学");
+		assertThat(index.suggest("治院", 8)).isEmpty();
+	}
+
+	@Test
+	void foldsWidthCaseAndKana() {
+		assertThat(index.suggest("ｉｃｕ", 8)).containsExactly("ICU国際基督教大学");
+		assertThat(index.suggest("ふぇりす", 8)).containsExactly("フェリス女学院大学");
+		assertThat(index.suggest("ﾌｪﾘｽ", 8)).containsExactly("フェリス女学院大学");
+	}
+
+	@Test
+	void respectsLimit() {
+		assertThat(index.suggest("大学", 3)).containsExactly("明治大学", "明治学院大学", "東京大学");
+		assertThat(index.suggest("   ", 3)).isEmpty();
+	}
+
+}